@@ -0,0 +1,40 @@
+package com.qa.binding.processor;
+
+/**
+ * A single locator taken from a page object annotation: a strategy and its value.
+ */
+public class Locator {
+
+    /**
+     * The locator strategies, with the {@code AppiumBy} factory method that builds each.
+     */
+    public enum Strategy {
+        ID("id"),
+        ACCESSIBILITY_ID("accessibilityId"),
+        XPATH("xpath"),
+        CLASS_NAME("className"),
+        TAG_NAME("tagName"),
+        UI_AUTOMATOR("androidUIAutomator"),
+        IOS_PREDICATE("iOSNsPredicateString"),
+        IOS_CLASS_CHAIN("iOSClassChain");
+
+        final String factoryMethod;
+
+        Strategy(String factoryMethod) {
+            this.factoryMethod = factoryMethod;
+        }
+    }
+
+    public final Strategy strategy;
+    public final String value;
+
+    public Locator(Strategy strategy, String value) {
+        this.strategy = strategy;
+        this.value = value;
+    }
+
+    @Override
+    public String toString() {
+        return strategy + "=" + value;
+    }
+}
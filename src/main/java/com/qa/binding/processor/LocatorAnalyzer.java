@@ -0,0 +1,313 @@
+package com.qa.binding.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Estimates how expensive a locator is to evaluate on the device and, where an exactly equivalent
+ * native locator exists, rewrites it.
+ * <p>
+ * XPath forces the driver to serialize the whole UI tree to XML before matching, which on large
+ * React Native screens takes seconds. Accessibility ids and ids are direct lookups; UiSelector,
+ * iOS predicates and class chains are evaluated natively and sit in between. The costs are relative
+ * estimates, not measurements.
+ * <p>
+ * Only a restricted XPath subset is rewritten: absolute descendant paths ({@code //Type[@attr="v"]}),
+ * optionally wrapped as {@code (...)[n]}, and on iOS plain child steps after the first step. Anything
+ * else (other axes, functions, several predicates) is reported as slow and left unchanged. So is a
+ * step with its own position, as in {@code //Type[2]} or {@code //Parent/Type[1]}: XPath counts it
+ * among the children of each parent, while UiSelector instances and class chain indexes count all
+ * matches, so the two only agree when a single parent matches.
+ */
+public class LocatorAnalyzer {
+    static final Pattern INDEXED = Pattern.compile("^\\((.*)\\)\\[(\\d+)]$");
+    static final Pattern STEP = Pattern.compile(
+            "^(?:child::)?([A-Za-z_][\\w.]*|\\*)(?:\\[@([\\w-]+)=(?:\"([^\"]*)\"|'([^']*)')])?$");
+
+    /**
+     * The outcome of analyzing one locator.
+     */
+    public static class Result {
+        public final Locator original;
+        public final Locator effective;
+        public final int cost;
+
+        Result(Locator original, Locator effective, int cost) {
+            this.original = original;
+            this.effective = effective;
+            this.cost = cost;
+        }
+
+        /**
+         * Checks whether the locator was rewritten.
+         *
+         * @return True if the effective locator differs from the original.
+         */
+        public boolean rewritten() {
+            return !original.toString().equals(effective.toString());
+        }
+
+        /**
+         * Checks whether the effective locator still needs a full tree dump.
+         *
+         * @return True for XPath.
+         */
+        public boolean slow() {
+            return effective.strategy == Locator.Strategy.XPATH;
+        }
+    }
+
+    /**
+     * One parsed XPath location step. The index is the 1-based position among all matches taken from
+     * a {@code (//...)[n]} wrapper, or 0.
+     */
+    static class Step {
+        String type;
+        String attribute;
+        String value;
+        int index;
+    }
+
+    /**
+     * Analyzes a locator and rewrites it when possible.
+     *
+     * @param locator The locator from the annotation.
+     * @param android True for an Android locator, false for iOS.
+     * @return The analysis.
+     */
+    public static Result analyze(Locator locator, boolean android) {
+        if (locator.strategy != Locator.Strategy.XPATH) {
+            return new Result(locator, locator, cost(locator));
+        }
+        String xpath = locator.value.trim();
+        Locator effective = android ? rewriteAndroid(xpath) : rewriteIOS(xpath);
+        if (effective == null) {
+            effective = new Locator(Locator.Strategy.XPATH, xpath);
+        }
+        return new Result(locator, effective, cost(effective));
+    }
+
+    /**
+     * Builds the XPath that finds a locator's element in a page source snapshot. XPaths are used as
+     * written; accessibility ids and ids become attribute matches on the platform's source attributes.
+     *
+     * @param locator The locator from the annotation, or null.
+     * @param android True for an Android locator, false for iOS.
+     * @return The XPath, or null if the locator cannot be evaluated against a page source.
+     */
+    public static String snapshotXPath(Locator locator, boolean android) {
+        if (locator == null) {
+            return null;
+        }
+        String attribute;
+        switch (locator.strategy) {
+            case XPATH:
+                return locator.value.trim();
+            case ACCESSIBILITY_ID:
+                attribute = android ? "content-desc" : "name";
+                break;
+            case ID:
+                attribute = android ? "resource-id" : "name";
+                break;
+            default:
+                return null;
+        }
+        String literal = xpathLiteral(locator.value);
+        return literal == null ? null : "//*[@" + attribute + "=" + literal + "]";
+    }
+
+    /**
+     * Quotes a value as an XPath string literal.
+     *
+     * @param value The value.
+     * @return The literal, or null if the value contains both kinds of quote.
+     */
+    static String xpathLiteral(String value) {
+        if (!value.contains("\"")) {
+            return "\"" + value + "\"";
+        }
+        return value.contains("'") ? null : "'" + value + "'";
+    }
+
+    /**
+     * Estimates the relative cost of a locator.
+     *
+     * @param locator The locator.
+     * @return 1 for direct lookups, 3 for native queries, 20 for XPath and 50 for XPath using axes.
+     */
+    static int cost(Locator locator) {
+        switch (locator.strategy) {
+            case ID:
+            case ACCESSIBILITY_ID:
+                return 1;
+            case XPATH:
+                return locator.value.replace("child::", "").contains("::") ? 50 : 20;
+            default:
+                return 3;
+        }
+    }
+
+    /**
+     * Rewrites a single-step Android XPath to an accessibility id, id or UiSelector.
+     *
+     * @param xpath The trimmed XPath.
+     * @return The equivalent locator, or null.
+     */
+    static Locator rewriteAndroid(String xpath) {
+        List<Step> steps = parse(xpath);
+        if (steps == null || steps.size() != 1) {
+            return null;
+        }
+        Step step = steps.get(0);
+        if (step.attribute == null) {
+            return null;
+        }
+        String method;
+        switch (step.attribute) {
+            case "content-desc":
+                method = "description";
+                break;
+            case "text":
+                method = "text";
+                break;
+            case "resource-id":
+                method = "resourceId";
+                break;
+            default:
+                return null;
+        }
+        if (step.type.equals("*") && step.index == 0) {
+            if (method.equals("description")) {
+                return new Locator(Locator.Strategy.ACCESSIBILITY_ID, step.value);
+            }
+            if (method.equals("resourceId")) {
+                return new Locator(Locator.Strategy.ID, step.value);
+            }
+        }
+        StringBuilder selector = new StringBuilder("new UiSelector()");
+        if (!step.type.equals("*")) {
+            selector.append(".className(").append(javaString(step.type)).append(")");
+        }
+        selector.append(".").append(method).append("(").append(javaString(step.value)).append(")");
+        if (step.index > 0) {
+            selector.append(".instance(").append(step.index - 1).append(")");
+        }
+        return new Locator(Locator.Strategy.UI_AUTOMATOR, selector.toString());
+    }
+
+    /**
+     * Rewrites an iOS XPath made of child steps to an accessibility id or class chain.
+     *
+     * @param xpath The trimmed XPath.
+     * @return The equivalent locator, or null.
+     */
+    static Locator rewriteIOS(String xpath) {
+        List<Step> steps = parse(xpath);
+        if (steps == null) {
+            return null;
+        }
+        Step first = steps.get(0);
+        if (steps.size() == 1 && first.type.equals("*") && first.index == 0 && "name".equals(first.attribute)) {
+            return new Locator(Locator.Strategy.ACCESSIBILITY_ID, first.value);
+        }
+        StringBuilder chain = new StringBuilder("**");
+        for (Step step : steps) {
+            if (step.attribute != null && !step.attribute.equals("name") && !step.attribute.equals("label")
+                    && !step.attribute.equals("value")) {
+                return null;
+            }
+            chain.append("/").append(step.type);
+            if (step.attribute != null) {
+                chain.append("[`").append(step.attribute).append(" == ")
+                        .append(javaString(step.value)).append("`]");
+            }
+            if (step.index > 0) {
+                chain.append("[").append(step.index).append("]");
+            }
+        }
+        return new Locator(Locator.Strategy.IOS_CLASS_CHAIN, chain.toString());
+    }
+
+    /**
+     * Parses the supported XPath subset into steps. A {@code (//...)[n]} wrapper is folded into the
+     * index of the single step it wraps; that is the only position kept, since it counts all matches.
+     *
+     * @param xpath The XPath.
+     * @return The steps, or null if the XPath is outside the supported subset.
+     */
+    static List<Step> parse(String xpath) {
+        int outerIndex = 0;
+        Matcher indexed = INDEXED.matcher(xpath);
+        if (indexed.matches()) {
+            xpath = indexed.group(1).trim();
+            outerIndex = Integer.parseInt(indexed.group(2));
+        }
+        if (!xpath.startsWith("//") || xpath.startsWith("///")) {
+            return null;
+        }
+        List<Step> steps = new ArrayList<Step>();
+        for (String part : splitSteps(xpath.substring(2))) {
+            Matcher m = STEP.matcher(part);
+            if (part.isEmpty() || !m.matches()) {
+                return null;
+            }
+            Step step = new Step();
+            step.type = m.group(1);
+            step.attribute = m.group(2);
+            step.value = m.group(3) != null ? m.group(3) : m.group(4);
+            steps.add(step);
+        }
+        if (outerIndex > 0) {
+            if (steps.size() != 1) {
+                return null;
+            }
+            steps.get(0).index = outerIndex;
+        }
+        return steps;
+    }
+
+    /**
+     * Splits a path on the '/' separators that are outside quotes and brackets.
+     *
+     * @param path The path without its leading "//".
+     * @return The steps as text; an empty step marks a "//" inside the path.
+     */
+    static List<String> splitSteps(String path) {
+        List<String> parts = new ArrayList<String>();
+        StringBuilder current = new StringBuilder();
+        char quote = 0;
+        int depth = 0;
+        for (char c : path.toCharArray()) {
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '[') {
+                depth++;
+            } else if (c == ']') {
+                depth--;
+            } else if (c == '/' && depth == 0) {
+                parts.add(current.toString());
+                current.setLength(0);
+                continue;
+            }
+            current.append(c);
+        }
+        parts.add(current.toString());
+        return parts;
+    }
+
+    /**
+     * Quotes a value as a double-quoted string for UiSelector and class chain expressions.
+     *
+     * @param value The value.
+     * @return The quoted value.
+     */
+    static String javaString(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
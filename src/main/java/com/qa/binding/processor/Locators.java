@@ -0,0 +1,65 @@
+package com.qa.binding.processor;
+
+import io.appium.java_client.pagefactory.AndroidFindBy;
+import io.appium.java_client.pagefactory.iOSXCUITFindBy;
+
+/**
+ * Reads the locator out of a page object annotation.
+ */
+public class Locators {
+
+    /**
+     * Gets the locator of an Android annotation.
+     *
+     * @param a The annotation, or null.
+     * @return The locator, or null if there is no annotation or it sets no strategy.
+     */
+    public static Locator of(AndroidFindBy a) {
+        if (a == null) {
+            return null;
+        }
+        return first(
+                a.id(), Locator.Strategy.ID,
+                a.accessibility(), Locator.Strategy.ACCESSIBILITY_ID,
+                a.xpath(), Locator.Strategy.XPATH,
+                a.uiAutomator(), Locator.Strategy.UI_AUTOMATOR,
+                a.className(), Locator.Strategy.CLASS_NAME,
+                a.tagName(), Locator.Strategy.TAG_NAME);
+    }
+
+    /**
+     * Gets the locator of an iOS annotation.
+     *
+     * @param a The annotation, or null.
+     * @return The locator, or null if there is no annotation or it sets no strategy.
+     */
+    public static Locator of(iOSXCUITFindBy a) {
+        if (a == null) {
+            return null;
+        }
+        return first(
+                a.id(), Locator.Strategy.ID,
+                a.accessibility(), Locator.Strategy.ACCESSIBILITY_ID,
+                a.xpath(), Locator.Strategy.XPATH,
+                a.iOSNsPredicate(), Locator.Strategy.IOS_PREDICATE,
+                a.iOSClassChain(), Locator.Strategy.IOS_CLASS_CHAIN,
+                a.className(), Locator.Strategy.CLASS_NAME,
+                a.tagName(), Locator.Strategy.TAG_NAME);
+    }
+
+    /**
+     * Picks the first non-empty value from alternating (value, strategy) pairs.
+     *
+     * @param pairs The pairs.
+     * @return The locator, or null if every value is empty.
+     */
+    static Locator first(Object... pairs) {
+        for (int i = 0; i < pairs.length; i += 2) {
+            String value = (String) pairs[i];
+            if (!value.isEmpty()) {
+                return new Locator((Locator.Strategy) pairs[i + 1], value);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,252 @@
+package com.qa.binding.processor;
+
+import io.appium.java_client.pagefactory.AndroidFindBy;
+import io.appium.java_client.pagefactory.iOSXCUITFindBy;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.annotation.processing.SupportedSourceVersion;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates a {@code <Page>_Binder} class for every page object with {@link AndroidFindBy} or
+ * {@link iOSXCUITFindBy} fields.
+ * <p>
+ * The binder assigns each field a {@code com.qa.binding.BoundElement} built from the locator of the
+ * current platform, so page construction needs neither reflection nor proxy generation at runtime.
+ * Page constructors call {@code <Page>_Binder.bind(this)}. Because the binder sits in the page's
+ * package and writes the fields directly, bound fields must not be private.
+ * <p>
+ * Every locator goes through {@link LocatorAnalyzer}: XPaths with an exact native equivalent are
+ * rewritten in the binder, the remaining ones are reported as warnings, and all of them are listed
+ * with their estimated cost in {@code locator-report.txt} next to the compiled classes. Pass
+ * {@code -Aqa.locators.rewrite=false} to keep the annotated locators as written. Each element also
+ * gets the XPath that finds it in a page source snapshot, see {@code com.qa.binding.PageSnapshot}.
+ * Pages annotated with {@code com.qa.binding.CacheElements} get a fresh {@code ElementCache} shared
+ * by all of their elements on every bind.
+ */
+@SupportedAnnotationTypes({
+        "io.appium.java_client.pagefactory.AndroidFindBy",
+        "io.appium.java_client.pagefactory.iOSXCUITFindBy"})
+@SupportedOptions(PageBinderProcessor.REWRITE_OPTION)
+@SupportedSourceVersion(SourceVersion.RELEASE_17)
+public class PageBinderProcessor extends AbstractProcessor {
+    static final String REWRITE_OPTION = "qa.locators.rewrite";
+    static final String CACHE_ELEMENTS = "com.qa.binding.CacheElements";
+
+    private final StringBuilder report = new StringBuilder();
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Map<TypeElement, List<VariableElement>> pages = new LinkedHashMap<TypeElement, List<VariableElement>>();
+        for (Class<? extends java.lang.annotation.Annotation> type : List.of(AndroidFindBy.class, iOSXCUITFindBy.class)) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(type)) {
+                if (element.getKind() != ElementKind.FIELD) {
+                    continue;
+                }
+                VariableElement field = (VariableElement) element;
+                List<VariableElement> fields = pages.computeIfAbsent((TypeElement) field.getEnclosingElement(),
+                        k -> new ArrayList<VariableElement>());
+                if (!fields.contains(field)) {
+                    fields.add(field);
+                }
+            }
+        }
+        for (Map.Entry<TypeElement, List<VariableElement>> page : pages.entrySet()) {
+            generate(page.getKey(), page.getValue());
+        }
+        if (roundEnv.processingOver() && report.length() > 0) {
+            writeReport();
+        }
+        return false;
+    }
+
+    /**
+     * Writes the binder of one page class.
+     *
+     * @param page   The page class.
+     * @param fields Its annotated fields, in declaration order.
+     */
+    void generate(TypeElement page, List<VariableElement> fields) {
+        String pkg = ((PackageElement) page.getEnclosingElement()).getQualifiedName().toString();
+        String pageName = page.getSimpleName().toString();
+        String binderName = pageName + "_Binder";
+
+        boolean cached = hasAnnotation(page, CACHE_ELEMENTS);
+        StringBuilder body = new StringBuilder();
+        for (VariableElement field : fields) {
+            if (field.getModifiers().contains(Modifier.PRIVATE) || field.getModifiers().contains(Modifier.STATIC)) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "locator fields bound by " + binderName + " must be non-private instance fields", field);
+                continue;
+            }
+            String name = field.getSimpleName().toString();
+            Locator androidLocator = Locators.of(field.getAnnotation(AndroidFindBy.class));
+            Locator iosLocator = Locators.of(field.getAnnotation(iOSXCUITFindBy.class));
+            String android = byExpression(analyze(androidLocator, true, field), field);
+            String ios = byExpression(analyze(iosLocator, false, field), field);
+            body.append("        page.").append(name).append(" = new BoundElement(page.getDriver(),\n")
+                    .append("                android ? ").append(android).append("\n")
+                    .append("                        : ").append(ios).append(",\n")
+                    .append("                ").append(literal(pageName + "." + name)).append(",\n")
+                    .append("                android ? ").append(nullableLiteral(LocatorAnalyzer.snapshotXPath(androidLocator, true)))
+                    .append(" : ").append(nullableLiteral(LocatorAnalyzer.snapshotXPath(iosLocator, false)))
+                    .append(cached ? ",\n                cache);\n" : ");\n");
+        }
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(pkg + "." + binderName, page);
+            try (Writer w = file.openWriter()) {
+                w.write("package " + pkg + ";\n\n");
+                w.write("import com.qa.binding.BoundElement;\n");
+                if (cached) {
+                    w.write("import com.qa.binding.ElementCache;\n");
+                }
+                w.write("import io.appium.java_client.AppiumBy;\n\n");
+                w.write("import javax.annotation.processing.Generated;\n\n");
+                w.write("/**\n * Binds the locator fields of {@link " + pageName + "}. Generated from its locator annotations.\n */\n");
+                w.write("@Generated(\"" + PageBinderProcessor.class.getName() + "\")\n");
+                w.write("final class " + binderName + " {\n\n");
+                w.write("    private " + binderName + "() {\n    }\n\n");
+                w.write("    /**\n     * Assigns the fields declared by " + pageName + " for the page's platform.\n");
+                w.write("     *\n     * @param page The page being constructed.\n     */\n");
+                w.write("    static void bind(" + pageName + " page) {\n");
+                w.write("        boolean android = \"Android\".equalsIgnoreCase(page.getPlatform());\n");
+                if (cached) {
+                    w.write("        ElementCache cache = new ElementCache(" + literal(pageName) + ");\n");
+                }
+                w.write(body.toString());
+                w.write("    }\n}\n");
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "could not write " + binderName + ": " + e.getMessage(), page);
+        }
+    }
+
+    /**
+     * Runs a locator through the analyzer, records it in the report and returns the locator to bind.
+     *
+     * @param locator The annotated locator, or null.
+     * @param android True for the Android locator, false for iOS.
+     * @param field   The field, for messages and the report.
+     * @return The locator to bind, or null.
+     */
+    Locator analyze(Locator locator, boolean android, VariableElement field) {
+        if (locator == null) {
+            return null;
+        }
+        LocatorAnalyzer.Result result = LocatorAnalyzer.analyze(locator, android);
+        boolean rewrite = !"false".equalsIgnoreCase(processingEnv.getOptions().get(REWRITE_OPTION));
+        Locator bound = rewrite ? result.effective : locator;
+        String name = field.getEnclosingElement().getSimpleName() + "." + field.getSimpleName();
+        String platform = android ? "Android" : "iOS";
+
+        report.append(name).append('\t').append(platform).append('\t').append("cost ").append(result.cost)
+                .append('\t').append(locator.toString().trim());
+        if (rewrite && result.rewritten()) {
+            report.append("\t-> ").append(bound);
+        }
+        report.append('\n');
+        if (bound.strategy == Locator.Strategy.XPATH) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "slow " + platform + " locator on " + name + " (estimated cost " + result.cost
+                            + "): " + bound.value.trim(), field);
+        }
+        return bound;
+    }
+
+    /**
+     * Writes the locator report to the class output directory.
+     */
+    void writeReport() {
+        try {
+            FileObject file = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", "locator-report.txt");
+            try (Writer w = file.openWriter()) {
+                w.write("# field\tplatform\testimated cost\tannotated locator\t-> bound locator\n");
+                w.write(report.toString());
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "could not write locator-report.txt: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Builds the Java expression creating the By for a locator, or "null" when there is none.
+     *
+     * @param locator The locator, or null.
+     * @param field   The field, for error messages.
+     * @return The expression.
+     */
+    String byExpression(Locator locator, VariableElement field) {
+        if (locator == null) {
+            return "null";
+        }
+        String factory = locator.strategy.factoryMethod;
+        if (factory == null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "unsupported locator strategy " + locator.strategy, field);
+            return "null";
+        }
+        return "AppiumBy." + factory + "(" + literal(locator.value) + ")";
+    }
+
+    /**
+     * Checks whether a page class carries an annotation, by name since the annotations of the
+     * test sources are not on the processor's classpath.
+     *
+     * @param page       The page class.
+     * @param annotation The qualified annotation name.
+     * @return True if the page is annotated.
+     */
+    boolean hasAnnotation(TypeElement page, String annotation) {
+        for (AnnotationMirror mirror : page.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Quotes a string as a Java literal, or returns "null".
+     *
+     * @param value The string, or null.
+     * @return The literal.
+     */
+    String nullableLiteral(String value) {
+        return value == null ? "null" : literal(value);
+    }
+
+    /**
+     * Quotes a string as a Java literal.
+     *
+     * @param value The string.
+     * @return The literal.
+     */
+    String literal(String value) {
+        return processingEnv.getElementUtils().getConstantExpression(value);
+    }
+}
@@ -1,9 +1,32 @@
 package com.qa;
 
-import com.aventstack.extentreports.Status;
-import com.qa.reports.ExtentReport;
+import com.qa.artifacts.ArtifactWriter;
+import com.qa.artifacts.VideoKeepPolicy;
+import com.qa.binding.BoundElement;
+import com.qa.binding.ElementCache;
+import com.qa.binding.PageSnapshot;
+import com.qa.data.Device;
+import com.qa.devices.DevicePool;
+import com.qa.devices.EmulatorManager;
+import com.qa.history.TestHistory;
+import com.qa.metrics.CommandMetrics;
+import com.qa.reset.AppReset;
+import com.qa.reset.LoggedIn;
+import com.qa.reset.LoginRoute;
+import com.qa.reset.ResetStrategy;
+import com.qa.sessions.AppiumFarm;
+import com.qa.sessions.PortAllocator;
+import com.qa.sessions.ServerStatus;
+import com.qa.sessions.SessionPool;
+import com.qa.sessions.SessionWarmup;
+import com.qa.utils.LogSink;
+import com.qa.utils.Settings;
+import com.qa.utils.StepLog;
+import com.qa.utils.StringTable;
 import com.qa.utils.TestUtils;
+import com.qa.waits.AdaptiveWait;
 import io.appium.java_client.AppiumBy;
+import io.appium.java_client.AppiumClientConfig;
 import io.appium.java_client.AppiumDriver;
 import io.appium.java_client.InteractsWithApps;
 import io.appium.java_client.android.AndroidDriver;
@@ -13,26 +36,36 @@ import io.appium.java_client.screenrecording.CanRecordScreen;
 import io.appium.java_client.service.local.AppiumDriverLocalService;
 import io.appium.java_client.service.local.AppiumServiceBuilder;
 import io.appium.java_client.service.local.flags.GeneralServerFlag;
-import org.apache.commons.codec.binary.Base64;
 import org.apache.logging.log4j.ThreadContext;
+import org.openqa.selenium.Capabilities;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.remote.DesiredCapabilities;
 import org.openqa.selenium.support.PageFactory;
-import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
+import org.testng.ITestContext;
 import org.testng.ITestResult;
 import org.testng.annotations.*;
+import org.testng.xml.XmlTest;
+import org.w3c.dom.Element;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.ServerSocket;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Duration;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
 
 /**
  * This class serves as the base for all test classes and provides methods for
@@ -42,11 +75,14 @@ import java.util.Properties;
 public class BaseTest {
     protected static ThreadLocal<AppiumDriver> driver = new ThreadLocal<AppiumDriver>();
     protected static ThreadLocal<Properties> props = new ThreadLocal<Properties>();
-    protected static ThreadLocal<HashMap<String, String>> strings = new ThreadLocal<HashMap<String, String>>();
     protected static ThreadLocal<String> platform = new ThreadLocal<String>();
     protected static ThreadLocal<String> dateTime = new ThreadLocal<String>();
     protected static ThreadLocal<String> deviceName = new ThreadLocal<String>();
-    private static AppiumDriverLocalService server;
+    protected static ThreadLocal<String> lastReset = new ThreadLocal<String>();
+    protected static ThreadLocal<Device> leasedDevice = new ThreadLocal<Device>();
+    protected static ThreadLocal<Boolean> recording = new ThreadLocal<Boolean>();
+    static final int SESSION_ATTEMPTS = 3;
+    static final long SERVER_READY_SECONDS = 60;
     TestUtils utils = new TestUtils();
 
     /**
@@ -83,20 +119,14 @@ public class BaseTest {
 
     /**
      * Gets the string resources loaded from strings.xml.
-     *
-     * @return The HashMap containing string resources.
-     */
-    public HashMap<String, String> getStrings() {
-        return strings.get();
-    }
-
-    /**
-     * Sets the string resources.
      * <p>
-     * The HashMap containing string resources to set.
+     * The table is parsed once per JVM and shared by all threads. If the {@code locale}
+     * property is set in config.properties, strings-&lt;locale&gt;.xml is used instead.
+     *
+     * @return The immutable map containing string resources.
      */
-    public void setStrings(HashMap<String, String> strings2) {
-        strings.set(strings2);
+    public Map<String, String> getStrings() {
+        return StringTable.get(getProps().getProperty("locale"));
     }
 
     /**
@@ -147,6 +177,22 @@ public class BaseTest {
         deviceName.set(deviceName2);
     }
 
+    /**
+     * Gets the description of the app reset that ran before the current test method.
+     *
+     * @return The reset description, or null if no reset ran.
+     */
+    public String getLastReset() {
+        return lastReset.get();
+    }
+
+    /**
+     * Sets the description of the last app reset.
+     */
+    public void setLastReset(String lastReset2) {
+        lastReset.set(lastReset2);
+    }
+
     /**
      * Constructor for the BaseTest class.
      */
@@ -163,154 +209,326 @@ public class BaseTest {
     /**
      * Runs before each test method.
      * <p>
-     * Starts recording the screen.
+     * In a {@code <test>} with {@code devicePool=true}, leases an idle device of the test's platform
+     * from the {@link DevicePool} and starts or reuses its session on this thread. An emulator of
+     * the {@link EmulatorManager} that comes from another {@code <test>} is first reset to its
+     * snapshot, with its warm sessions quit. Then starts
+     * recording the screen unless the video keep policy is NEVER.
+     *
+     * @param context The test context.
+     * @throws Exception If no device becomes idle or its session cannot be started.
      */
     @BeforeMethod
-    public void beforeMethod() {
-        ((CanRecordScreen) getDriver()).startRecordingScreen();
+    public void beforeMethod(ITestContext context) throws Exception {
+        if (Boolean.parseBoolean(context.getCurrentXmlTest().getParameter("devicePool"))) {
+            Device device = DevicePool.lease(context.getCurrentXmlTest().getParameter("platformName"));
+            leasedDevice.set(device);
+            try {
+                if (EmulatorManager.isNewShard(device, context.getCurrentXmlTest().getName())) {
+                    SessionPool.evict(capabilities(device, loadProps()));
+                    EmulatorManager.restore(device);
+                }
+                startSession(device);
+            } catch (Exception e) {
+                releaseDevice();
+                throw e;
+            }
+        }
+        if (getVideoKeepPolicy().records()) {
+            ((CanRecordScreen) getDriver()).startRecordingScreen();
+            recording.set(true);
+        }
     }
 
     /**
      * Runs after each test method.
      * <p>
-     * Stops recording the screen, saves the video, and logs the video path.
+     * Stops recording the screen, if {@link #beforeMethod(ITestContext)} started it, and, if the
+     * video keep policy keeps this test's video, hands it to the {@link ArtifactWriter} which
+     * decodes and saves it off the test thread. The video is named after the test method, also
+     * when a later {@code @BeforeMethod} failed and the test did not run. A device leased from the
+     * {@link DevicePool} is returned to it, with its session kept warm.
      *
      * @param result The test result.
-     * @throws Exception If there is an error stopping the recording or saving the video.
      */
     //stop video capturing and create *.mp4 file
-    @AfterMethod
-    public synchronized void afterMethod(ITestResult result) throws Exception {
-        String media = ((CanRecordScreen) getDriver()).stopRecordingScreen();
+    @AfterMethod(alwaysRun = true)
+    public void afterMethod(ITestResult result) {
+        try {
+            boolean recorded = Boolean.TRUE.equals(recording.get());
+            recording.remove();
+            if (!recorded || getDriver() == null) {
+                return;
+            }
+            VideoKeepPolicy policy = getVideoKeepPolicy();
+            String media = ((CanRecordScreen) getDriver()).stopRecordingScreen();
+            if (!policy.keeps(result)) {
+                return;
+            }
 
-        Map<String, String> params = result.getTestContext().getCurrentXmlTest().getAllParameters();
-        String dirPath = "videos" + File.separator + params.get("platformName") + "_" + params.get("deviceName") + File.separator + getDateTime() + File.separator + result.getTestClass().getRealClass().getSimpleName();
+            String dirPath = "videos" + File.separator + getPlatform() + "_" + getDeviceName() + File.separator + getDateTime() + File.separator + result.getTestClass().getRealClass().getSimpleName();
+            Path videoFile = Paths.get(dirPath, result.getMethod().getMethodName() + ".mp4");
 
-        File videoDir = new File(dirPath);
+            ArtifactWriter.submit("video " + videoFile, () -> {
+                ArtifactWriter.writeBase64(media, videoFile);
+                utils.log().info("video path: " + videoFile);
+            });
+        } finally {
+            releaseDevice();
+        }
+    }
 
-        synchronized (videoDir) {
-            if (!videoDir.exists()) {
-                videoDir.mkdirs();
-            }
+    /**
+     * Returns the session and the device leased by {@link #beforeMethod(ITestContext)}, if any.
+     */
+    void releaseDevice() {
+        Device device = leasedDevice.get();
+        if (device == null) {
+            return;
         }
-        FileOutputStream stream = null;
-        try {
-            stream = new FileOutputStream(videoDir + File.separator + result.getName() + ".mp4");
-            stream.write(Base64.decodeBase64(media));
-            stream.close();
-            utils.log().info("video path: " + videoDir + File.separator + result.getName() + ".mp4");
-        } catch (Exception e) {
-            utils.log().error("error during video capture" + e.toString());
-        } finally {
-            if (stream != null) {
-                stream.close();
-            }
+        leasedDevice.remove();
+        if (getDriver() != null) {
+            SessionPool.release(getDriver());
+            setDriver(null);
         }
+        PageSnapshot.invalidate();
+        DevicePool.release(device);
+    }
+
+    /**
+     * Gets the video keep policy from config.properties, read once per JVM through {@link Settings}
+     * so it is known even on a thread whose {@code beforeMethod} failed before the session started.
+     *
+     * @return The video keep policy.
+     */
+    public VideoKeepPolicy getVideoKeepPolicy() {
+        return VideoKeepPolicy.from(Settings.get("videoKeepPolicy", null));
     }
 
 
     /**
      * Runs before the entire test suite.
      * <p>
-     * Starts the Appium server if it is not already running.
+     * Starts the {@link AppiumFarm}: {@code appiumServers} Appium servers ("auto" for one per
+     * {@value AppiumFarm#SESSIONS_PER_SERVER} devices of the suite) on ports from
+     * {@code appiumPortRange}, each polled on {@code /status} until ready. Run with
+     * {@code -DstartAppiumServer=false} to use a server started elsewhere, such as a fake server
+     * given with {@code -DappiumURL}, which overrides the URL in config.properties; that server is
+     * polled the same way. Meanwhile the {@link EmulatorManager}, if enabled, boots the emulators
+     * it planned.
+     * <p>
+     * With {@code warmSessions=true}, the sessions of all devices of the suite are then created
+     * concurrently, at most {@code sessionWarmupParallelism} at a time and each within
+     * {@code sessionStartupTimeout} seconds, and left in the {@link SessionPool} for the test threads.
      *
-     * @throws Exception If there is an error starting the Appium server.
+     * @param context The test context, to find the suite's devices.
+     * @throws Exception If there is an error starting the Appium servers.
      */
     @BeforeSuite
-    public void beforeSuite() throws Exception, Exception {
+    public void beforeSuite(ITestContext context) throws Exception {
         ThreadContext.put("ROUTINGKEY", "ServerLogs");
-        server = getAppiumService(); // -> If using Mac, uncomment this statement and comment below statement
-//		server = getAppiumServerDefault(); // -> If using Windows, uncomment this statement and comment above statement
-        if (!checkIfAppiumServerIsRunnning(4723)) {
-            server.start();
-            server.clearOutPutStreams(); // -> Comment this if you want to see server logs in the console
-            utils.log().info("Appium server started");
-        } else {
-            utils.log().info("Appium server already running");
+        Properties props = loadProps();
+        Collection<Device> devices = suiteDevices(context);
+        // emulators boot while the Appium servers start
+        CompletableFuture<Void> emulators = CompletableFuture.runAsync(EmulatorManager::boot);
+        if (Boolean.parseBoolean(System.getProperty("startAppiumServer", "true"))) {
+            int servers = AppiumFarm.serverCount(props.getProperty("appiumServers"), devices.size());
+            AppiumFarm.start(servers, props.getProperty("appiumPortRange"),
+                    (port, log) -> AppiumFarm.of(getAppiumService(port, log))); // -> If using Mac, uncomment this statement and comment below statement
+//                  (port, log) -> AppiumFarm.of(getAppiumServerDefault(port, log))); // -> If using Windows, uncomment this statement and comment above statement
+        } else if (!AppiumFarm.isRunning()) {
+            utils.log().info("not starting a local Appium server (startAppiumServer=false)");
+            ServerStatus.awaitReady(new URL(System.getProperty("appiumURL", props.getProperty("appiumURL"))),
+                    Duration.ofSeconds(SERVER_READY_SECONDS));
+        }
+        try {
+            emulators.join();
+        } catch (CompletionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+        // emulators that did not boot have left the pool
+        devices = suiteDevices(context);
+        if (Boolean.parseBoolean(props.getProperty("warmSessions", "false")) && !devices.isEmpty()) {
+            utils.log().info(SessionWarmup.run(devices,
+                    Integer.parseInt(props.getProperty("sessionWarmupParallelism", "4")),
+                    Long.parseLong(props.getProperty("sessionStartupTimeout", "300")),
+                    new SessionWarmup.Starter() {
+                        @Override
+                        public Capabilities capabilities(Device device) throws Exception {
+                            setProps(props);
+                            setPlatform(device.platformName());
+                            setDeviceName(device.deviceName());
+                            return BaseTest.this.capabilities(device, props);
+                        }
+
+                        @Override
+                        public AppiumDriver create(Device device, Capabilities capabilities) throws Exception {
+                            return createSession(device, capabilities);
+                        }
+                    }));
+        }
+    }
+
+    /**
+     * Collects the devices of the suite's tests: the pooled devices of each platform with
+     * {@code devicePool=true}, and the device pinned by the parameters of each other test.
+     *
+     * @param context The test context.
+     * @return The devices, in suite order.
+     */
+    Collection<Device> suiteDevices(ITestContext context) {
+        Set<Device> devices = new LinkedHashSet<Device>();
+        for (XmlTest test : context.getSuite().getXmlSuite().getTests()) {
+            Map<String, String> p = test.getAllParameters();
+            String platformName = p.get("platformName");
+            if (platformName == null) {
+                continue;
+            }
+            if (Boolean.parseBoolean(p.get("devicePool"))) {
+                devices.addAll(DevicePool.devices(platformName));
+            } else if (p.get("deviceName") != null) {
+                devices.add(new Device(platformName, p.get("udid"), p.get("deviceName"), p.getOrDefault("emulator", "androidOnly"),
+                        p.getOrDefault("systemPort", "androidOnly"), p.getOrDefault("chromeDriverPort", "androidOnly"),
+                        p.getOrDefault("wdaLocalPort", "iOSOnly"), p.getOrDefault("webkitDebugProxyPort", "iOSOnly")));
+            }
+        }
+        return devices;
+    }
+
+    /**
+     * Loads config.properties from the classpath.
+     *
+     * @return The properties.
+     * @throws IOException If the file cannot be read.
+     */
+    Properties loadProps() throws IOException {
+        String propFileName = "config.properties";
+        utils.log().info("load " + propFileName);
+        Properties props = new Properties();
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(propFileName)) {
+            props.load(inputStream);
         }
+        return props;
     }
 
     /**
-     * Checks if the Appium server is running on the specified port.
+     * Checks if an Appium server on the specified port is ready for sessions, through its
+     * {@code /status} endpoint.
      *
      * @param port The port to check.
-     * @return True if the Appium server is running, false otherwise.
+     * @return True if the Appium server is ready, false otherwise.
      * @throws Exception If there is an error checking the port.
      */
     public boolean checkIfAppiumServerIsRunnning(int port) throws Exception {
-        boolean isAppiumServerRunning = false;
-        ServerSocket socket;
-        try {
-            socket = new ServerSocket(port);
-            socket.close();
-        } catch (IOException e) {
-            System.out.println("1");
-            isAppiumServerRunning = true;
-        } finally {
-            socket = null;
-        }
-        return isAppiumServerRunning;
+        return ServerStatus.isReady(new URL("http://127.0.0.1:" + port + "/"));
     }
 
 
     /**
-     * Stops the Appium server after the test suite execution.
+     * Waits for pending artifact writes, quits the pooled sessions and stops the Appium
+     * servers and the managed emulators after the test suite execution.
      */
     @AfterSuite(alwaysRun = true)
     public void afterSuite() {
-        if (server.isRunning()) {
-            server.stop();
-            utils.log().info("Appium server stopped");
+        utils.log().info(ResetStrategy.summary());
+        utils.log().info(LoginRoute.summary());
+        utils.log().info(DevicePool.summary());
+        utils.log().info(ElementCache.summary());
+        try {
+            AdaptiveWait.export(Paths.get("wait-stats.csv"));
+        } catch (IOException e) {
+            utils.log().error("could not write wait-stats.csv", e);
+        }
+        TestHistory.save();
+        try {
+            CommandMetrics.write(Paths.get("command-latency.json"), Paths.get("command-latency.csv"));
+        } catch (IOException e) {
+            utils.log().error("could not write the command latency summary", e);
         }
+        utils.log().info(AppiumFarm.summary());
+        utils.log().info(EmulatorManager.summary());
+        ArtifactWriter.flush();
+        LogSink.flushAll();
+        SessionPool.shutdown();
+        AppiumFarm.stop();
+        EmulatorManager.stopAll();
     }
 
     /**
      * Builds the default Appium driver local service for Windows.
      *
+     * @param port    The port the server listens on.
+     * @param logFile The server's log file.
      * @return AppiumDriverLocalService object
      */
-    public AppiumDriverLocalService getAppiumServerDefault() {
-        return AppiumDriverLocalService.buildDefaultService();
+    public AppiumDriverLocalService getAppiumServerDefault(int port, File logFile) {
+        return AppiumDriverLocalService.buildService(new AppiumServiceBuilder().usingPort(port)
+                .withArgument(GeneralServerFlag.SESSION_OVERRIDE).withLogFile(logFile));
     }
 
     /**
      * Builds the Appium driver local service for Mac.
      * Update the paths as per your Mac setup.
      *
+     * @param port    The port the server listens on.
+     * @param logFile The server's log file.
      * @return AppiumDriverLocalService object
      */
-    public AppiumDriverLocalService getAppiumService() {
+    public AppiumDriverLocalService getAppiumService(int port, File logFile) {
         HashMap<String, String> environment = new HashMap<String, String>();
         environment.put("PATH", "enter_your_path_here" + System.getenv("PATH"));
         environment.put("ANDROID_HOME", "enter_android_home_path");
-        return AppiumDriverLocalService.buildService(new AppiumServiceBuilder().usingDriverExecutable(new File("/usr/local/bin/node")).withAppiumJS(new File("/usr/local/lib/node_modules/appium/build/lib/main.js")).usingPort(4723).withArgument(GeneralServerFlag.SESSION_OVERRIDE)
+        return AppiumDriverLocalService.buildService(new AppiumServiceBuilder().usingDriverExecutable(new File("/usr/local/bin/node")).withAppiumJS(new File("/usr/local/lib/node_modules/appium/build/lib/main.js")).usingPort(port).withArgument(GeneralServerFlag.SESSION_OVERRIDE)
 //				.withArgument(() -> "--allow-insecure","chromedriver_autodownload")
-                .withEnvironment(environment).withLogFile(new File("ServerLogs/server.log")));
+                .withEnvironment(environment).withLogFile(logFile));
     }
 
     /**
      * Initializes the Appium driver before each test.
+     * <p>
+     * A {@code <test>} either pins one device with its parameters, or sets {@code devicePool=true}
+     * and only names its platform. A pinned device's session is started here and used by all of the
+     * test's methods; a pooled test leases a device per method instead, see
+     * {@link #beforeMethod(ITestContext)}.
      *
      * @param emulator             Optional parameter for Android emulator. Set to "true" to use an emulator.
      * @param platformName         The platform name (Android or iOS).
-     * @param udid                 The device UDID.
-     * @param deviceName           The device name.
+     * @param udid                 The device UDID, unless the device comes from the pool.
+     * @param deviceName           The device name, unless the device comes from the pool.
      * @param systemPort           Optional parameter for Android system port.
      * @param chromeDriverPort     Optional parameter for Android ChromeDriver port.
      * @param wdaLocalPort         Optional parameter for iOS WDA local port.
      * @param webkitDebugProxyPort Optional parameter for iOS WebKit debug proxy port.
+     * @param devicePool           "true" to lease devices of the platform from the {@link DevicePool}.
      * @throws Exception If the driver initialization fails.
      */
-    @Parameters({"emulator", "platformName", "udid", "deviceName", "systemPort", "chromeDriverPort", "wdaLocalPort", "webkitDebugProxyPort"})
+    @Parameters({"emulator", "platformName", "udid", "deviceName", "systemPort", "chromeDriverPort", "wdaLocalPort", "webkitDebugProxyPort", "devicePool"})
     @BeforeTest
-    public void beforeTest(@Optional("androidOnly") String emulator, String platformName, String udid, String deviceName, @Optional("androidOnly") String systemPort, @Optional("androidOnly") String chromeDriverPort, @Optional("iOSOnly") String wdaLocalPort, @Optional("iOSOnly") String webkitDebugProxyPort) throws Exception {
-        setDateTime(utils.dateTime());
+    public void beforeTest(@Optional("androidOnly") String emulator, String platformName, @Optional String udid, @Optional String deviceName, @Optional("androidOnly") String systemPort, @Optional("androidOnly") String chromeDriverPort, @Optional("iOSOnly") String wdaLocalPort, @Optional("iOSOnly") String webkitDebugProxyPort, @Optional("false") String devicePool) throws Exception {
+        if (Boolean.parseBoolean(devicePool)) {
+            return;
+        }
+        startSession(new Device(platformName, udid, deviceName, emulator, systemPort, chromeDriverPort, wdaLocalPort, webkitDebugProxyPort));
+    }
+
+    /**
+     * Points this thread at a device: routes its logs to the device's log file and leases a
+     * session for it from the {@link SessionPool}, so a warm session created with the same
+     * capabilities is reused instead of starting a new one.
+     *
+     * @param device The device.
+     * @throws Exception If the driver initialization fails.
+     */
+    void startSession(Device device) throws Exception {
+        String platformName = device.platformName();
+        String deviceName = device.deviceName();
+        if (getDateTime() == null) {
+            setDateTime(utils.dateTime());
+        }
         setPlatform(platformName);
         setDeviceName(deviceName);
-        URL url;
-        InputStream inputStream = null;
-        InputStream stringsis = null;
-        Properties props = new Properties();
+        TestUtils.useDevice(platformName, deviceName, getDateTime());
+        Properties props;
         AppiumDriver driver;
 
         String strFile = "logs" + File.separator + platformName + "_" + deviceName;
@@ -323,81 +541,176 @@ public class BaseTest {
         utils.log().info("log path: " + strFile);
 
         try {
-            props = new Properties();
-            String propFileName = "config.properties";
-            String xmlFileName = "strings/strings.xml";
-
-            utils.log().info("load " + propFileName);
-            inputStream = getClass().getClassLoader().getResourceAsStream(propFileName);
-            props.load(inputStream);
+            props = loadProps();
             setProps(props);
-
-            utils.log().info("load " + xmlFileName);
-            stringsis = getClass().getClassLoader().getResourceAsStream(xmlFileName);
-            setStrings(utils.parseStringXML(stringsis));
-
-            DesiredCapabilities desiredCapabilities = new DesiredCapabilities();
-            desiredCapabilities.setCapability("platformName", platformName);
-            desiredCapabilities.setCapability("deviceName", deviceName);
-            desiredCapabilities.setCapability("udid", udid);
-            url = new URL(props.getProperty("appiumURL"));
-
-            switch (platformName) {
-                case "Android":
-                    desiredCapabilities.setCapability("automationName", props.getProperty("androidAutomationName"));
-                    desiredCapabilities.setCapability("appPackage", props.getProperty("androidAppPackage"));
-                    desiredCapabilities.setCapability("appActivity", props.getProperty("androidAppActivity"));
-                    if (emulator.equalsIgnoreCase("true")) {
-                        desiredCapabilities.setCapability("avd", deviceName);
-                        desiredCapabilities.setCapability("avdLaunchTimeout", 120000);
-                    }
-                    desiredCapabilities.setCapability("systemPort", systemPort);
-                    desiredCapabilities.setCapability("chromeDriverPort", chromeDriverPort);
-                    String androidAppUrl = System.getProperty("user.dir") + File.separator + "src" + File.separator + "test" + File.separator + "resources" + File.separator + "app" + File.separator + "Android.SauceLabs.Mobile.Sample.app.2.7.1.apk";
-                    //	String androidAppUrl = getClass().getResource(props.getProperty("androidAppLocation")).getFile();
-                    utils.log().info("appUrl is" + androidAppUrl);
-                    desiredCapabilities.setCapability("app", androidAppUrl);
-
-                    driver = new AndroidDriver(url, desiredCapabilities);
-                    break;
-                case "iOS":
-                    desiredCapabilities.setCapability("automationName", props.getProperty("iOSAutomationName"));
-                    String iOSAppUrl = System.getProperty("user.dir") + File.separator + "src" + File.separator + "test" + File.separator + "resources" + File.separator + "app" + File.separator + "SwagLabsMobileApp.app";
-                    //	String iOSAppUrl = getClass().getResource(props.getProperty("iOSAppLocation")).getFile();
-                    utils.log().info("appUrl is" + iOSAppUrl);
-                    desiredCapabilities.setCapability("bundleId", props.getProperty("iOSBundleId"));
-                    desiredCapabilities.setCapability("wdaLocalPort", wdaLocalPort);
-                    desiredCapabilities.setCapability("webkitDebugProxyPort", webkitDebugProxyPort);
-                    desiredCapabilities.setCapability("app", iOSAppUrl);
-
-                    driver = new IOSDriver(url, desiredCapabilities);
-                    break;
-                default:
-                    throw new Exception("Invalid platform! - " + platformName);
-            }
+            DesiredCapabilities desiredCapabilities = capabilities(device, props);
+            driver = SessionPool.acquire(desiredCapabilities, () -> createSession(device, desiredCapabilities));
             setDriver(driver);
             utils.log().info("driver initialized: " + driver);
         } catch (Exception e) {
             utils.log().fatal("driver initialization failure. ABORT!!!\n" + e.toString());
             throw e;
-        } finally {
-            if (inputStream != null) {
-                inputStream.close();
+        }
+    }
+
+    /**
+     * Builds the capabilities of a device's session, without its ports. They are the key under
+     * which the {@link SessionPool} keeps the session warm.
+     *
+     * @param device The device.
+     * @param props  The properties from config.properties.
+     * @return The capabilities.
+     * @throws Exception If the platform is not supported.
+     */
+    DesiredCapabilities capabilities(Device device, Properties props) throws Exception {
+        String platformName = device.platformName();
+        String deviceName = device.deviceName();
+        DesiredCapabilities desiredCapabilities = new DesiredCapabilities();
+        desiredCapabilities.setCapability("platformName", platformName);
+        desiredCapabilities.setCapability("appium:deviceName", deviceName);
+        desiredCapabilities.setCapability("appium:udid", device.udid());
+
+        switch (platformName) {
+            case "Android":
+                desiredCapabilities.setCapability("appium:automationName", props.getProperty("androidAutomationName"));
+                desiredCapabilities.setCapability("appium:appPackage", props.getProperty("androidAppPackage"));
+                desiredCapabilities.setCapability("appium:appActivity", props.getProperty("androidAppActivity"));
+                if ("true".equalsIgnoreCase(device.emulator())) {
+                    desiredCapabilities.setCapability("appium:avd", deviceName);
+                    desiredCapabilities.setCapability("appium:avdLaunchTimeout", 120000);
+                }
+                String androidAppUrl = System.getProperty("user.dir") + File.separator + "src" + File.separator + "test" + File.separator + "resources" + File.separator + "app" + File.separator + "Android.SauceLabs.Mobile.Sample.app.2.7.1.apk";
+                //	String androidAppUrl = getClass().getResource(props.getProperty("androidAppLocation")).getFile();
+                utils.log().info("appUrl is" + androidAppUrl);
+                desiredCapabilities.setCapability("appium:app", androidAppUrl);
+                break;
+            case "iOS":
+                desiredCapabilities.setCapability("appium:automationName", props.getProperty("iOSAutomationName"));
+                String iOSAppUrl = System.getProperty("user.dir") + File.separator + "src" + File.separator + "test" + File.separator + "resources" + File.separator + "app" + File.separator + "SwagLabsMobileApp.app";
+                //	String iOSAppUrl = getClass().getResource(props.getProperty("iOSAppLocation")).getFile();
+                utils.log().info("appUrl is" + iOSAppUrl);
+                desiredCapabilities.setCapability("appium:bundleId", props.getProperty("iOSBundleId"));
+                desiredCapabilities.setCapability("appium:app", iOSAppUrl);
+                break;
+            default:
+                throw new Exception("Invalid platform! - " + platformName);
+        }
+        return desiredCapabilities;
+    }
+
+    /**
+     * Creates a new session for a device with the driver of its platform.
+     *
+     * @param device       The device.
+     * @param capabilities The capabilities from {@link #capabilities(Device, Properties)}.
+     * @return The driver.
+     * @throws MalformedURLException If {@code appiumURL} is not a URL.
+     */
+    AppiumDriver createSession(Device device, Capabilities capabilities) throws MalformedURLException {
+        Map<String, String> ports = new LinkedHashMap<String, String>();
+        if (device.platformName().equals("iOS")) {
+            ports.put("appium:wdaLocalPort", device.wdaLocalPort());
+            ports.put("appium:webkitDebugProxyPort", device.webkitDebugProxyPort());
+            return newSession(capabilities, ports, (clientConfig, caps) -> new IOSDriver(clientConfig, caps));
+        }
+        ports.put("appium:systemPort", device.systemPort());
+        ports.put("appium:chromeDriverPort", device.chromeDriverPort());
+        return newSession(capabilities, ports, (clientConfig, caps) -> new AndroidDriver(clientConfig, caps));
+    }
+
+    /**
+     * Creates a session with its driver server ports set. Ports given for the device are used as
+     * they are; the others are leased from the {@link PortAllocator} within the {@code portRange}
+     * property and released when the {@link SessionPool} quits the session. The ports are not part
+     * of the pool key, so a warm session is reused whatever ports it was created with.
+     * <p>
+     * When the {@link AppiumFarm} runs, the session is created on its least loaded server and
+     * counts against that server until it is quit; if that server dies meanwhile, the session is
+     * created on another one. Otherwise it goes to {@code appiumURL}.
+     *
+     * @param capabilities The capabilities without the ports.
+     * @param ports        The port capabilities, with the device's value or null.
+     * @param factory      Creates the driver from the client config and the final capabilities.
+     * @return The driver.
+     * @throws MalformedURLException If {@code appiumURL} is not a URL.
+     */
+    AppiumDriver newSession(Capabilities capabilities, Map<String, String> ports,
+                            BiFunction<AppiumClientConfig, Capabilities, AppiumDriver> factory) throws MalformedURLException {
+        int leased = 0;
+        for (String port : ports.values()) {
+            if (!isPort(port)) {
+                leased++;
             }
-            if (stringsis != null) {
-                stringsis.close();
+        }
+        PortAllocator.Lease lease = leased == 0 ? null : PortAllocator.lease(leased, getProps().getProperty("portRange"));
+        DesiredCapabilities sessionCapabilities = new DesiredCapabilities(capabilities);
+        int next = 0;
+        for (Map.Entry<String, String> port : ports.entrySet()) {
+            sessionCapabilities.setCapability(port.getKey(),
+                    isPort(port.getValue()) ? Integer.parseInt(port.getValue()) : lease.port(next++));
+        }
+        AppiumFarm.Slot slot = null;
+        try {
+            AppiumDriver driver = null;
+            for (int attempt = 1; driver == null; attempt++) {
+                slot = AppiumFarm.isRunning() ? AppiumFarm.assign() : null;
+                URL url = slot != null ? slot.getUrl() : new URL(System.getProperty("appiumURL", getProps().getProperty("appiumURL")));
+                AppiumClientConfig clientConfig = AppiumClientConfig.defaultConfig().baseUrl(url)
+                        .withFilter(CommandMetrics.filter(getDeviceName()));
+                try {
+                    driver = factory.apply(clientConfig, sessionCapabilities);
+                } catch (RuntimeException e) {
+                    if (slot == null || slot.isServerRunning() || attempt == SESSION_ATTEMPTS) {
+                        throw e;
+                    }
+                    // the server died while the session was being created; try another one
+                    utils.log().error(slot + " died while creating a session, retrying: " + e.getMessage());
+                    slot.close();
+                }
+            }
+            if (lease != null) {
+                SessionPool.attach(driver, lease);
+                utils.log().info("leased ports " + lease + " for session " + driver.getSessionId());
             }
+            if (slot != null) {
+                SessionPool.attach(driver, slot);
+                utils.log().info("session " + driver.getSessionId() + " runs on " + slot);
+            }
+            return driver;
+        } catch (RuntimeException e) {
+            if (lease != null) {
+                lease.close();
+            }
+            if (slot != null) {
+                slot.close();
+            }
+            throw e;
         }
     }
 
     /**
-     * Waits for the given element to be visible.
+     * Checks whether a port parameter holds a port number rather than a placeholder.
+     *
+     * @param value The parameter value, or null.
+     * @return True for a number.
+     */
+    static boolean isPort(String value) {
+        return value != null && value.matches("\\d+");
+    }
+
+    /**
+     * Waits for the given element to be visible. Page object elements are waited for with
+     * timeouts and polling learned from their earlier waits on the same platform and device model,
+     * see {@link AdaptiveWait}.
      *
      * @param e The WebElement to wait for.
      */
     public void waitForVisibility(WebElement e) {
-        WebDriverWait wait = new WebDriverWait(getDriver(), Duration.ofSeconds(TestUtils.WAIT));
-        wait.until(ExpectedConditions.visibilityOf(e));
+        String key = null;
+        if (e instanceof BoundElement) {
+            key = getPlatform() + "/" + EmulatorManager.modelOf(getDeviceName()) + "/" + ((BoundElement) e).getName();
+        }
+        AdaptiveWait.untilVisible(e, key);
     }
 
 /*  public void waitForVisibility(WebElement e){
@@ -426,19 +739,20 @@ public class BaseTest {
     public void click(WebElement e) {
         waitForVisibility(e);
         e.click();
+        PageSnapshot.invalidate();
     }
 
     /**
-     * Clicks the given element and logs a message.
+     * Clicks the given element and records a step in the thread's {@link StepLog}.
      *
      * @param e   The WebElement to click.
-     * @param msg The message to log.
+     * @param msg The step to record.
      */
     public void click(WebElement e, String msg) {
         waitForVisibility(e);
-        utils.log().info(msg);
-        ExtentReport.getTest().log(Status.INFO, msg);
+        StepLog.record(msg, null);
         e.click();
+        PageSnapshot.invalidate();
     }
 
     /**
@@ -450,39 +764,71 @@ public class BaseTest {
     public void sendKeys(WebElement e, String txt) {
         waitForVisibility(e);
         e.sendKeys(txt);
+        PageSnapshot.invalidate();
     }
 
     /**
-     * Sends keys to the given element and logs a message.
+     * Sends keys to the given element and records a step in the thread's {@link StepLog}.
      *
      * @param e   The WebElement to send keys to.
      * @param txt The text to send.
-     * @param msg The message to log.
+     * @param msg The step to record.
      */
     public void sendKeys(WebElement e, String txt, String msg) {
         waitForVisibility(e);
-        utils.log().info(msg);
-        ExtentReport.getTest().log(Status.INFO, msg);
+        StepLog.record(msg, null);
         e.sendKeys(txt);
+        PageSnapshot.invalidate();
     }
 
     /**
      * Gets the value of the given attribute of the element.
+     * <p>
+     * When a suite opts in with {@code pageSnapshots=true}, in config.properties or as a system
+     * property, a page object element is read from the thread's
+     * {@link PageSnapshot} when it is displayed there, so reading several elements of one screen
+     * costs a single page source request. Otherwise, or when the element is not in the snapshot,
+     * it waits for the element and reads it from the device.
      *
      * @param e         The WebElement to get the attribute from.
      * @param attribute The name of the attribute.
      * @return The value of the attribute.
      */
     public String getAttribute(WebElement e, String attribute) {
+        Element snapshotElement = findInSnapshot(e);
+        if (snapshotElement != null) {
+            return snapshotElement.hasAttribute(attribute) ? snapshotElement.getAttribute(attribute) : null;
+        }
         waitForVisibility(e);
         return e.getAttribute(attribute);
     }
 
     /**
-     * Gets the text of the given element and logs a message.
+     * Looks a page object element up in the thread's page snapshot, taking one if needed.
+     * A miss drops the snapshot, since the screen is evidently still changing.
+     *
+     * @param e The WebElement to look up.
+     * @return The displayed snapshot element, or null if the element has to be read from the device.
+     */
+    Element findInSnapshot(WebElement e) {
+        if (!(e instanceof BoundElement) || ((BoundElement) e).getSnapshotXPath() == null
+                || !Boolean.parseBoolean(Settings.get("pageSnapshots", "false"))) {
+            return null;
+        }
+        Element found = PageSnapshot.current(() -> getDriver().getPageSource())
+                .find(((BoundElement) e).getSnapshotXPath());
+        if (found == null || !PageSnapshot.displayed(found)) {
+            PageSnapshot.invalidate();
+            return null;
+        }
+        return found;
+    }
+
+    /**
+     * Gets the text of the given element and records a step with it in the thread's {@link StepLog}.
      *
      * @param e   The WebElement to get the text from.
-     * @param msg The message to log.
+     * @param msg The step to record.
      * @return The text of the element.
      */
     public String getText(WebElement e, String msg) {
@@ -495,8 +841,7 @@ public class BaseTest {
                 txt = getAttribute(e, "label");
                 break;
         }
-        utils.log().info(msg + txt);
-        ExtentReport.getTest().log(Status.INFO, msg + txt);
+        StepLog.record(msg, String.valueOf(txt));
         return txt;
     }
 
@@ -511,6 +856,7 @@ public class BaseTest {
             case "iOS":
                 ((InteractsWithApps) getDriver()).terminateApp(getProps().getProperty("iOSBundleId"));
         }
+        PageSnapshot.invalidate();
     }
 
     /**
@@ -524,6 +870,43 @@ public class BaseTest {
             case "iOS":
                 ((InteractsWithApps) getDriver()).activateApp(getProps().getProperty("iOSBundleId"));
         }
+        PageSnapshot.invalidate();
+    }
+
+    /**
+     * Brings the app to a known state before a test method using the strategy selected by
+     * {@link AppReset} on the method or its class, or a full restart when neither has one.
+     * A {@link LoggedIn} test is then taken to the Products screen by the fastest {@link LoginRoute};
+     * without an {@link AppReset} it is not reset first, since the route already does that.
+     * <p>
+     * The time the reset took is logged and kept so the listener can add it to the report.
+     *
+     * @param m The test method about to run.
+     */
+    public void resetApp(Method m) {
+        AppReset config = m.getAnnotation(AppReset.class);
+        if (config == null) {
+            config = getClass().getAnnotation(AppReset.class);
+        }
+        LoggedIn loggedIn = m.getAnnotation(LoggedIn.class);
+        if (loggedIn == null) {
+            loggedIn = getClass().getAnnotation(LoggedIn.class);
+        }
+        String msg = null;
+        if (config != null || loggedIn == null) {
+            ResetStrategy strategy = config == null ? ResetStrategy.FULL_RESTART : config.value();
+            long elapsed = strategy.reset(this, config);
+            msg = "app reset " + strategy + " took " + elapsed + " ms";
+            utils.log().info(msg);
+        }
+        PageSnapshot.invalidate();
+        if (loggedIn != null) {
+            String login = LoginRoute.establish(this, loggedIn);
+            PageSnapshot.invalidate();
+            utils.log().info(login);
+            msg = msg == null ? login : msg + "; " + login;
+        }
+        setLastReset(msg);
     }
 
     /**
@@ -532,6 +915,7 @@ public class BaseTest {
      * @return The WebElement that was scrolled to.
      */
     public WebElement scrollToElement() {
+        PageSnapshot.invalidate();
         return getDriver().findElement(AppiumBy.androidUIAutomator("new UiScrollable(new UiSelector()" + ".scrollable(true)).scrollIntoView(" + "new UiSelector().description(\"test-Price\"));"));
     }
 
@@ -548,15 +932,19 @@ public class BaseTest {
 //	  scrollObject.put("name", "test-ADD TO CART");
 //	  scrollObject.put("toVisible", "sdfnjksdnfkld");
         getDriver().executeScript("mobile:scroll", scrollObject);
+        PageSnapshot.invalidate();
     }
 
     /**
-     * Quits the driver after each test.
+     * Returns the driver to the session pool after each test. Sessions are quit at the end
+     * of the suite, or earlier when the pool finds them broken.
      */
     @AfterTest(alwaysRun = true)
     public void afterTest() {
         if (getDriver() != null) {
-            getDriver().quit();
+            SessionPool.release(getDriver());
+            setDriver(null);
         }
+        PageSnapshot.invalidate();
     }
 }
@@ -3,10 +3,8 @@ package com.qa;
 import com.qa.pages.SettingsPage;
 import com.qa.utils.TestUtils;
 import io.appium.java_client.pagefactory.AndroidFindBy;
-import io.appium.java_client.pagefactory.AppiumFieldDecorator;
 import io.appium.java_client.pagefactory.iOSXCUITFindBy;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.PageFactory;
 
 /**
  * Represents the Menu page in the mobile application.
@@ -20,16 +18,15 @@ public class MenuPage extends BaseTest {
      * - **Android:** XPath "//android.view.ViewGroup[@content-desc=\"test-Menu\"]/android.view.ViewGroup/android.widget.ImageView"
      * - **iOS:** XPath "//XCUIElementTypeOther[@name=\"test-Menu\"]/XCUIElementTypeOther"
      */
-    @AndroidFindBy(xpath = "//android.view.ViewGroup[@content-desc=\"test-Menu\"]/android.view.ViewGroup/android.widget.ImageView\n" +
-            "")
+    @AndroidFindBy(xpath = "//android.view.ViewGroup[@content-desc=\"test-Menu\"]/android.view.ViewGroup/android.widget.ImageView")
     @iOSXCUITFindBy(xpath = "//XCUIElementTypeOther[@name=\"test-Menu\"]/XCUIElementTypeOther")
-    private WebElement settingsBtn;
+    WebElement settingsBtn;
 
     /**
-     * Initializes the MenuPage with the Appium driver.
+     * Binds the menu elements through the generated MenuPage_Binder.
      */
     public MenuPage() {
-        PageFactory.initElements(new AppiumFieldDecorator(getDriver()), this);
+        MenuPage_Binder.bind(this);
     }
 
     /**
@@ -0,0 +1,134 @@
+package com.qa.artifacts;
+
+import com.qa.utils.TestUtils;
+import org.apache.logging.log4j.ThreadContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class moves artifact I/O (video decoding, screenshot writing) off the test threads.
+ * <p>
+ * Tasks run on a small pool with a bounded queue. When the queue is full the submitting
+ * test thread runs the task itself, which keeps memory bounded when devices produce
+ * artifacts faster than the disk can take them. {@link #flush()} waits for all pending
+ * writes and is called at the end of the suite.
+ */
+public class ArtifactWriter {
+    static final int THREADS = 2;
+    static final int QUEUE_CAPACITY = 16;
+    static final long FLUSH_TIMEOUT_MINUTES = 5;
+    static final int DECODE_CHUNK = 64 * 1024;
+    static ThreadPoolExecutor executor;
+    static TestUtils utils = new TestUtils();
+
+    /**
+     * An artifact write that may fail with an I/O error.
+     */
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    /**
+     * Queues an artifact write. The caller's log routing context is carried over so that
+     * messages from the task end up in the same device log.
+     *
+     * @param description What is being written, used in error messages.
+     * @param task        The write to perform.
+     */
+    public static void submit(String description, Task task) {
+        Map<String, String> context = ThreadContext.getImmutableContext();
+        getExecutor().execute(() -> {
+            Map<String, String> previous = ThreadContext.getImmutableContext();
+            ThreadContext.putAll(context);
+            try {
+                task.run();
+            } catch (Exception e) {
+                utils.log().error("error writing " + description + ": " + e.toString());
+            } finally {
+                ThreadContext.clearMap();
+                ThreadContext.putAll(previous);
+            }
+        });
+    }
+
+    /**
+     * Waits for every queued write to finish. A new pool is created on the next submit.
+     */
+    public static void flush() {
+        ThreadPoolExecutor pending;
+        synchronized (ArtifactWriter.class) {
+            pending = executor;
+            executor = null;
+        }
+        if (pending == null) {
+            return;
+        }
+        pending.shutdown();
+        try {
+            if (!pending.awaitTermination(FLUSH_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                utils.log().error("artifact writes still pending after " + FLUSH_TIMEOUT_MINUTES + " minutes");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Decodes base64 media, as returned by Appium's screen recording, into a file.
+     * <p>
+     * Plain base64 is decoded in {@value #DECODE_CHUNK}-character chunks, so the decoded bytes are
+     * never held in memory at once. Text with line breaks is decoded in one go with the MIME decoder;
+     * wrapping it as a stream instead reads one character at a time and is several times slower.
+     *
+     * @param base64 The base64 text; line breaks are allowed.
+     * @param file   The file to write, replaced if it exists.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void writeBase64(String base64, Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        byte[] ascii = base64.getBytes(StandardCharsets.US_ASCII);
+        if (base64.indexOf('\n') >= 0 || base64.indexOf('\r') >= 0) {
+            Files.write(file, Base64.getMimeDecoder().decode(ascii));
+            return;
+        }
+        Base64.Decoder decoder = Base64.getDecoder();
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (int offset = 0; offset < ascii.length; offset += DECODE_CHUNK) {
+                ByteBuffer decoded = decoder.decode(
+                        ByteBuffer.wrap(ascii, offset, Math.min(DECODE_CHUNK, ascii.length - offset)));
+                out.write(decoded.array(), decoded.arrayOffset() + decoded.position(), decoded.remaining());
+            }
+        }
+    }
+
+    /**
+     * Gets the executor, creating it on first use.
+     *
+     * @return The executor.
+     */
+    static synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            AtomicInteger count = new AtomicInteger();
+            executor = new ThreadPoolExecutor(THREADS, THREADS, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY), r -> {
+                Thread t = new Thread(r, "artifact-writer-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,126 @@
+package com.qa.artifacts;
+
+import com.qa.utils.TestUtils;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * This class captures screenshots once and stores them under a content-addressed name,
+ * so identical screens (e.g. the same crash dialog on hundreds of failed tests) are
+ * written to disk only once. Writing, and the optional thumbnail, happen on the
+ * {@link ArtifactWriter} pool.
+ */
+public class Screenshots {
+    static final int THUMBNAIL_WIDTH = 240;
+    static TestUtils utils = new TestUtils();
+
+    /**
+     * A stored screenshot: the relative path of the full image and, if requested, of
+     * its thumbnail.
+     */
+    public static class Shot {
+        public final String imagePath;
+        public final String thumbnailPath;
+
+        Shot(String imagePath, String thumbnailPath) {
+            this.imagePath = imagePath;
+            this.thumbnailPath = thumbnailPath;
+        }
+    }
+
+    /**
+     * Captures a screenshot and queues it for writing under {@code dirPath}.
+     * <p>
+     * The returned paths can be referenced from reports right away; the files appear
+     * once the {@link ArtifactWriter} has run, and at the latest when it is flushed.
+     *
+     * @param driver    The driver to take the screenshot with.
+     * @param dirPath   The directory, relative to the working directory, to store it in.
+     * @param thumbnail Whether to also write a downscaled thumbnail.
+     * @return The stored screenshot.
+     */
+    public static Shot capture(TakesScreenshot driver, String dirPath, boolean thumbnail) {
+        byte[] png = driver.getScreenshotAs(OutputType.BYTES);
+        String name = sha256(png);
+        Path image = Paths.get(dirPath, name + ".png");
+        Path thumb = thumbnail ? Paths.get(dirPath, name + "_thumb.png") : null;
+
+        ArtifactWriter.submit("screenshot " + image, () -> {
+            if (Files.exists(image)) {
+                return;
+            }
+            Files.createDirectories(image.getParent());
+            Files.write(image, png);
+            if (thumb != null) {
+                writeThumbnail(png, thumb);
+            }
+        });
+        return new Shot(toReportPath(image), thumb == null ? null : toReportPath(thumb));
+    }
+
+    /**
+     * Writes a downscaled copy of the image.
+     *
+     * @param png   The PNG bytes.
+     * @param thumb The thumbnail path.
+     * @throws Exception If the image cannot be decoded or written.
+     */
+    static void writeThumbnail(byte[] png, Path thumb) throws Exception {
+        BufferedImage source = ImageIO.read(new ByteArrayInputStream(png));
+        if (source == null) {
+            return;
+        }
+        int width = Math.min(THUMBNAIL_WIDTH, source.getWidth());
+        int height = Math.max(1, source.getHeight() * width / source.getWidth());
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        ImageIO.write(scaled, "png", thumb.toFile());
+    }
+
+    /**
+     * Builds the hex SHA-256 digest of the given bytes.
+     *
+     * @param bytes The bytes.
+     * @return The digest.
+     */
+    static String sha256(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Converts a path to the forward-slash form used in HTML reports.
+     *
+     * @param path The path.
+     * @return The report path.
+     */
+    static String toReportPath(Path path) {
+        return path.toString().replace(File.separatorChar, '/');
+    }
+}
@@ -0,0 +1,61 @@
+package com.qa.artifacts;
+
+import org.testng.ITestResult;
+
+/**
+ * Decides which screen recordings are kept, read from the {@code videoKeepPolicy}
+ * property in config.properties.
+ */
+public enum VideoKeepPolicy {
+    /**
+     * Record and keep every test.
+     */
+    ALWAYS,
+    /**
+     * Record every test but only decode and write the video of failed or skipped tests.
+     */
+    FAILURES_ONLY,
+    /**
+     * Do not record at all.
+     */
+    NEVER;
+
+    /**
+     * Parses the policy name, defaulting to {@link #ALWAYS} when it is missing.
+     *
+     * @param value The property value.
+     * @return The policy.
+     */
+    public static VideoKeepPolicy from(String value) {
+        if (value == null || value.isBlank()) {
+            return ALWAYS;
+        }
+        return valueOf(value.trim().toUpperCase());
+    }
+
+    /**
+     * Checks whether the recording should be started at all.
+     *
+     * @return True if the screen should be recorded.
+     */
+    public boolean records() {
+        return this != NEVER;
+    }
+
+    /**
+     * Checks whether the recording of the given test should be written to disk.
+     *
+     * @param result The test result.
+     * @return True if the video should be kept.
+     */
+    public boolean keeps(ITestResult result) {
+        switch (this) {
+            case ALWAYS:
+                return true;
+            case FAILURES_ONLY:
+                return result.getStatus() != ITestResult.SUCCESS;
+            default:
+                return false;
+        }
+    }
+}
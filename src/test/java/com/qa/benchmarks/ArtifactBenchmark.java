@@ -0,0 +1,110 @@
+package com.qa.benchmarks;
+
+import com.qa.artifacts.ArtifactWriter;
+import com.qa.artifacts.Screenshots;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the failure screenshot path of {@code TestListener} and the video path of
+ * {@code BaseTest.afterMethod}, each next to the code they replaced: copying the screenshot via a
+ * temporary file, and decoding the whole recording into memory before writing it.
+ * <p>
+ * The screenshot is a 1080x2340 PNG and the recording 5 MB, about a short test's worth.
+ * Screenshots are written once and then deduplicated, so {@code screenshot} measures capture,
+ * hashing and queuing. Run with {@code mvn -P benchmark test-compile exec:exec -Djmh.args=Artifact}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArtifactBenchmark {
+    Path dir;
+    TakesScreenshot driver;
+    String video;
+
+    @Setup
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("artifact-bench");
+        Random random = new Random(42);
+        BufferedImage image = new BufferedImage(1080, 2340, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y += 4) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt(0xFFFFFF));
+            }
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        byte[] pngBytes = png.toByteArray();
+        driver = new TakesScreenshot() {
+            @Override
+            public <X> X getScreenshotAs(OutputType<X> target) {
+                return target.convertFromPngBytes(pngBytes);
+            }
+        };
+        byte[] media = new byte[5 * 1024 * 1024];
+        random.nextBytes(media);
+        video = Base64.getEncoder().encodeToString(media);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        ArtifactWriter.flush();
+        FileUtils.deleteDirectory(dir.toFile());
+    }
+
+    @Benchmark
+    public Object screenshot() {
+        return Screenshots.capture(driver, dir.toString(), false);
+    }
+
+    @Benchmark
+    public Object screenshotTempFileCopy() throws Exception {
+        File file = driver.getScreenshotAs(OutputType.FILE);
+        File target = dir.resolve("legacy.png").toFile();
+        FileUtils.copyFile(file, target);
+        file.delete();
+        return target;
+    }
+
+    @Benchmark
+    public Object videoStreamDecode() throws Exception {
+        Path file = dir.resolve("video.mp4");
+        ArtifactWriter.writeBase64(video, file);
+        return file;
+    }
+
+    @Benchmark
+    public Object videoDecodeInMemory() throws Exception {
+        File file = dir.resolve("legacy.mp4").toFile();
+        try (FileOutputStream stream = new FileOutputStream(file)) {
+            stream.write(org.apache.commons.codec.binary.Base64.decodeBase64(video));
+        }
+        return file;
+    }
+}
@@ -0,0 +1,64 @@
+package com.qa.benchmarks;
+
+import com.aventstack.extentreports.ExtentTest;
+import com.qa.reports.ExtentReport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link ExtentReport#getTest()} under contention from eight device threads with the
+ * previous lookup, a static synchronized method over a {@code HashMap} keyed by thread id.
+ * <p>
+ * Run with {@code mvn -P benchmark test-compile exec:exec -Djmh.args=ExtentReport}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class ExtentReportBenchmark {
+    static final Map<Integer, ExtentTest> legacyTests = new HashMap<Integer, ExtentTest>();
+
+    /**
+     * The lookup used before: one lock for all threads.
+     *
+     * @return The test of the current thread.
+     */
+    static synchronized ExtentTest legacyGetTest() {
+        return legacyTests.get((int) Thread.currentThread().getId());
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ExtentTest test = ExtentReport.startTest("bench-" + Thread.currentThread().getId(), "");
+        synchronized (ExtentReportBenchmark.class) {
+            legacyTests.put((int) Thread.currentThread().getId(), test);
+        }
+    }
+
+    @Benchmark
+    public ExtentTest synchronizedMap() {
+        return legacyGetTest();
+    }
+
+    @Benchmark
+    public ExtentTest threadLocal() {
+        return ExtentReport.getTest();
+    }
+}
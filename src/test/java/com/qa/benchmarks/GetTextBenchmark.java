@@ -0,0 +1,80 @@
+package com.qa.benchmarks;
+
+import com.qa.BaseTest;
+import com.qa.binding.PageSnapshot;
+import com.qa.fake.FakeAppiumBackend;
+import com.qa.fake.FakeDrivers;
+import com.qa.pages.ProductsPage;
+import com.qa.reports.ExtentReport;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the framework side of {@link BaseTest#getText}: visibility wait, element lookup and
+ * attribute read, or the page snapshot, against the in-process fake driver. Each invocation reads
+ * one screen, so the snapshot is dropped first.
+ * <p>
+ * Logging is switched off so the numbers show the driver path rather than the console.
+ * Run with {@code mvn -P benchmark test-compile exec:exec -Djmh.args=GetText}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetTextBenchmark {
+    @Param({"false", "true"})
+    public String pageSnapshots;
+
+    BaseTest base = new BaseTest();
+    ProductsPage productsPage;
+
+    @Setup
+    public void setUp() throws Exception {
+        Configurator.setLevel("com.qa", Level.OFF);
+        Properties props = new Properties();
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream("config.properties")) {
+            props.load(is);
+        }
+        System.setProperty("pageSnapshots", pageSnapshots);
+        base.setProps(props);
+        base.setPlatform("Android");
+        base.setDriver(FakeDrivers.create("Android", "bench", new FakeAppiumBackend()));
+        ExtentReport.startTest("getText-" + pageSnapshots, "");
+        productsPage = new ProductsPage();
+    }
+
+    @TearDown
+    public void tearDown() {
+        base.getDriver().quit();
+    }
+
+    @Benchmark
+    public String oneField() {
+        PageSnapshot.invalidate();
+        return productsPage.getSLBTitle();
+    }
+
+    @Benchmark
+    public String threeFields() {
+        PageSnapshot.invalidate();
+        return productsPage.getTitle() + productsPage.getSLBTitle() + productsPage.getSLBPrice();
+    }
+}
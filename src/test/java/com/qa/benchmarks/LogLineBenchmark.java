@@ -0,0 +1,68 @@
+package com.qa.benchmarks;
+
+import com.qa.BaseTest;
+import com.qa.utils.LogSink;
+import com.qa.utils.TestUtils;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link TestUtils#log(String)}: caller lookup, message formatting, the console line
+ * and the queued {@link LogSink} write.
+ * <p>
+ * Every call writes a line to disk, so the benchmark runs fixed batches of
+ * {@value #BATCH} lines instead of for a fixed time; scores are milliseconds per batch. The console
+ * is discarded while it runs and the log directory is deleted afterwards.
+ * Run with {@code mvn -P benchmark test-compile exec:exec -Djmh.args=LogLine}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = LogLineBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = LogLineBenchmark.BATCH)
+@Fork(1)
+public class LogLineBenchmark {
+    static final int BATCH = 10_000;
+
+    BaseTest base = new BaseTest();
+    TestUtils utils = new TestUtils();
+    PrintStream console;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        base.setPlatform("bench");
+        base.setDeviceName("jmh");
+        base.setDateTime("log-line");
+        TestUtils.useDevice("bench", "jmh", "log-line");
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        System.setOut(console);
+        LogSink.closeAll();
+        FileUtils.deleteDirectory(new File("logs" + File.separator + "bench_jmh"));
+    }
+
+    @Benchmark
+    public void logLine() {
+        utils.log("product page title is - PRODUCTS");
+    }
+}
@@ -0,0 +1,53 @@
+package com.qa.benchmarks;
+
+import com.qa.utils.TestUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the logger lookup done by {@link TestUtils#log()} with the previous approach of
+ * capturing the full stack trace and looking the logger up by class name on every call.
+ * <p>
+ * Run with {@code mvn -P benchmark test-compile exec:exec -Djmh.args=LoggerLookup}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class LoggerLookupBenchmark {
+    TestUtils utils = new TestUtils();
+
+    /**
+     * The lookup used before: full stack capture plus a lookup by name.
+     *
+     * @return The logger.
+     */
+    static Logger stackTraceLookup() {
+        return LogManager.getLogger(Thread.currentThread().getStackTrace()[2].getClassName());
+    }
+
+    @Benchmark
+    public Logger stackTrace() {
+        return stackTraceLookup();
+    }
+
+    @Benchmark
+    public Logger stackWalkerCached() {
+        return utils.log();
+    }
+}
@@ -0,0 +1,78 @@
+package com.qa.benchmarks;
+
+import com.qa.BaseTest;
+import com.qa.fake.FakeAppiumBackend;
+import com.qa.fake.FakeDrivers;
+import com.qa.pages.LoginPage;
+import com.qa.pages.ProductsPage;
+import io.appium.java_client.pagefactory.AppiumFieldDecorator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.support.PageFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares page construction through the generated binders with the reflective
+ * {@code PageFactory.initElements(new AppiumFieldDecorator(driver), page)} it replaced.
+ * <p>
+ * The PageFactory benchmarks only measure {@code initElements} on an already constructed page;
+ * the binder benchmarks measure the whole constructor, including the binder.
+ * Run with {@code mvn -P benchmark test-compile exec:exec -Djmh.args=PageConstruction}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageConstructionBenchmark {
+    BaseTest base = new BaseTest();
+    LoginPage loginPage;
+    ProductsPage productsPage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        base.setPlatform("Android");
+        base.setDriver(FakeDrivers.create("Android", "bench", new FakeAppiumBackend()));
+        loginPage = new LoginPage();
+        productsPage = new ProductsPage();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        base.getDriver().quit();
+    }
+
+    @Benchmark
+    public Object loginPagePageFactory() {
+        PageFactory.initElements(new AppiumFieldDecorator(base.getDriver()), loginPage);
+        return loginPage;
+    }
+
+    @Benchmark
+    public Object loginPageBinder() {
+        return new LoginPage();
+    }
+
+    @Benchmark
+    public Object productsPagePageFactory() {
+        PageFactory.initElements(new AppiumFieldDecorator(base.getDriver()), productsPage);
+        return productsPage;
+    }
+
+    @Benchmark
+    public Object productsPageBinder() {
+        return new ProductsPage();
+    }
+}
@@ -0,0 +1,45 @@
+package com.qa.benchmarks;
+
+import com.qa.utils.StringTable;
+import com.qa.utils.TestUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading the strings of a test through {@link TestUtils#parseStringXML}, which parsed
+ * {@code strings/strings.xml} into a DOM for every test class, with the shared {@link StringTable}.
+ * <p>
+ * Run with {@code mvn -P benchmark test-compile exec:exec -Djmh.args=Strings}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringsBenchmark {
+    TestUtils utils = new TestUtils();
+
+    @Benchmark
+    public Map<String, String> parseStringXML() throws Exception {
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream("strings/strings.xml")) {
+            return utils.parseStringXML(is);
+        }
+    }
+
+    @Benchmark
+    public Map<String, String> stringTable() {
+        return StringTable.get();
+    }
+}
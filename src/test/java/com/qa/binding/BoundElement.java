@@ -0,0 +1,287 @@
+package com.qa.binding;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A page object element assigned by a generated {@code <Page>_Binder}.
+ * <p>
+ * Like the proxies created by {@code AppiumFieldDecorator}, it looks the element up each time it
+ * is used, so it keeps working across screen changes; unlike them it is a plain object created
+ * without reflection. Pages annotated with {@link CacheElements} share an {@link ElementCache}
+ * so the lookup happens once per page instance. Actions that change the screen invalidate the thread's {@link PageSnapshot}.
+ */
+public class BoundElement implements WebElement, WrapsElement {
+    final SearchContext context;
+    final By by;
+    final String name;
+    final String snapshotXPath;
+    final ElementCache cache;
+
+    /**
+     * Creates a bound element that cannot be read from a page snapshot.
+     *
+     * @param context The driver the element is looked up with.
+     * @param by      The locator for the current platform, or null if the page declares none.
+     * @param name    The page and field name, used in messages.
+     */
+    public BoundElement(SearchContext context, By by, String name) {
+        this(context, by, name, null);
+    }
+
+    /**
+     * Creates a bound element.
+     *
+     * @param context       The driver the element is looked up with.
+     * @param by            The locator for the current platform, or null if the page declares none.
+     * @param name          The page and field name, used in messages.
+     * @param snapshotXPath The XPath that finds the element in a {@link PageSnapshot}, or null.
+     */
+    public BoundElement(SearchContext context, By by, String name, String snapshotXPath) {
+        this(context, by, name, snapshotXPath, null);
+    }
+
+    /**
+     * Creates a bound element.
+     *
+     * @param context       The driver the element is looked up with.
+     * @param by            The locator for the current platform, or null if the page declares none.
+     * @param name          The page and field name, used in messages.
+     * @param snapshotXPath The XPath that finds the element in a {@link PageSnapshot}, or null.
+     * @param cache         The element cache of the page instance, or null to look the element up on every call.
+     */
+    public BoundElement(SearchContext context, By by, String name, String snapshotXPath, ElementCache cache) {
+        this.context = context;
+        this.by = by;
+        this.name = name;
+        this.snapshotXPath = snapshotXPath;
+        this.cache = cache;
+    }
+
+    /**
+     * Gets the locator of this element.
+     *
+     * @return The locator, or null if the page declares none for the current platform.
+     */
+    public By getBy() {
+        return by;
+    }
+
+    /**
+     * Gets the page and field name of this element.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the XPath that finds this element in a page source snapshot.
+     *
+     * @return The XPath, or null if the element can only be read from the device.
+     */
+    public String getSnapshotXPath() {
+        return snapshotXPath;
+    }
+
+    /**
+     * Looks the element up, or takes it from the page's cache.
+     *
+     * @return The element found on the current screen.
+     */
+    WebElement resolve() {
+        if (cache == null) {
+            return find();
+        }
+        WebElement element = cache.get(name);
+        if (element == null) {
+            element = find();
+            cache.put(name, element);
+        }
+        return element;
+    }
+
+    /**
+     * Finds the element on the device.
+     *
+     * @return The element found on the current screen.
+     */
+    WebElement find() {
+        if (by == null) {
+            throw new NoSuchElementException(name + " has no locator for this platform");
+        }
+        return context.findElement(by);
+    }
+
+    /**
+     * Applies an action to the element. If a cached element has gone stale it is found again and
+     * the action retried once.
+     *
+     * @param action The action.
+     * @param <T>    The result type.
+     * @return The action's result.
+     */
+    <T> T call(Function<WebElement, T> action) {
+        WebElement element = resolve();
+        try {
+            return action.apply(element);
+        } catch (StaleElementReferenceException e) {
+            if (cache == null) {
+                throw e;
+            }
+            cache.stale(name);
+            element = find();
+            cache.put(name, element);
+            return action.apply(element);
+        }
+    }
+
+    /**
+     * Applies an action without a result to the element, see {@link #call(Function)}.
+     *
+     * @param action The action.
+     */
+    void run(Consumer<WebElement> action) {
+        call(e -> {
+            action.accept(e);
+            return null;
+        });
+    }
+
+    @Override
+    public WebElement getWrappedElement() {
+        return resolve();
+    }
+
+    @Override
+    public void click() {
+        run(WebElement::click);
+        PageSnapshot.invalidate();
+    }
+
+    @Override
+    public void submit() {
+        run(WebElement::submit);
+        PageSnapshot.invalidate();
+    }
+
+    @Override
+    public void sendKeys(CharSequence... keysToSend) {
+        run(e -> e.sendKeys(keysToSend));
+        PageSnapshot.invalidate();
+    }
+
+    @Override
+    public void clear() {
+        run(WebElement::clear);
+        PageSnapshot.invalidate();
+    }
+
+    @Override
+    public String getTagName() {
+        return call(WebElement::getTagName);
+    }
+
+    @Override
+    public String getDomProperty(String name) {
+        return call(e -> e.getDomProperty(name));
+    }
+
+    @Override
+    public String getDomAttribute(String name) {
+        return call(e -> e.getDomAttribute(name));
+    }
+
+    @Override
+    public String getAttribute(String name) {
+        return call(e -> e.getAttribute(name));
+    }
+
+    @Override
+    public String getAriaRole() {
+        return call(WebElement::getAriaRole);
+    }
+
+    @Override
+    public String getAccessibleName() {
+        return call(WebElement::getAccessibleName);
+    }
+
+    @Override
+    public boolean isSelected() {
+        return call(WebElement::isSelected);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return call(WebElement::isEnabled);
+    }
+
+    @Override
+    public String getText() {
+        return call(WebElement::getText);
+    }
+
+    @Override
+    public List<WebElement> findElements(By by) {
+        return call(e -> e.findElements(by));
+    }
+
+    @Override
+    public WebElement findElement(By by) {
+        return call(e -> e.findElement(by));
+    }
+
+    @Override
+    public SearchContext getShadowRoot() {
+        return call(WebElement::getShadowRoot);
+    }
+
+    @Override
+    public boolean isDisplayed() {
+        return call(WebElement::isDisplayed);
+    }
+
+    @Override
+    public Point getLocation() {
+        return call(WebElement::getLocation);
+    }
+
+    @Override
+    public Dimension getSize() {
+        return call(WebElement::getSize);
+    }
+
+    @Override
+    public Rectangle getRect() {
+        return call(WebElement::getRect);
+    }
+
+    @Override
+    public String getCssValue(String propertyName) {
+        return call(e -> e.getCssValue(propertyName));
+    }
+
+    @Override
+    public <X> X getScreenshotAs(OutputType<X> target) {
+        return call(e -> e.getScreenshotAs(target));
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + by + ")";
+    }
+}
@@ -0,0 +1,19 @@
+package com.qa.binding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Makes the elements of a page object reuse the element found by their first lookup for as long
+ * as the page instance lives, instead of finding it again on every call.
+ * <p>
+ * The generated binder gives the page an {@link ElementCache}. An element that has gone stale is
+ * found again transparently. Only annotate pages whose elements stay on screen while the page
+ * object is in use.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface CacheElements {
+}
@@ -0,0 +1,93 @@
+package com.qa.binding;
+
+import org.openqa.selenium.WebElement;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The elements found for one page object instance, keyed by field name, with hit, miss and
+ * re-resolve counts kept per page class for the whole run.
+ */
+public class ElementCache {
+    static final Map<String, Stats> stats = new ConcurrentHashMap<String, Stats>();
+
+    final Map<String, WebElement> elements = new ConcurrentHashMap<String, WebElement>();
+    final Stats pageStats;
+
+    /**
+     * Counters shared by all instances of one page class.
+     */
+    static class Stats {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder reResolves = new LongAdder();
+    }
+
+    /**
+     * Creates an empty cache for a new page instance.
+     *
+     * @param page The page class name the counts are reported under.
+     */
+    public ElementCache(String page) {
+        this.pageStats = stats.computeIfAbsent(page, k -> new Stats());
+    }
+
+    /**
+     * Gets a cached element and counts a hit or a miss.
+     *
+     * @param name The field name.
+     * @return The element, or null if it has to be found.
+     */
+    WebElement get(String name) {
+        WebElement element = elements.get(name);
+        (element == null ? pageStats.misses : pageStats.hits).increment();
+        return element;
+    }
+
+    /**
+     * Caches a newly found element.
+     *
+     * @param name    The field name.
+     * @param element The element.
+     */
+    void put(String name, WebElement element) {
+        elements.put(name, element);
+    }
+
+    /**
+     * Drops an element that went stale and counts the re-resolve.
+     *
+     * @param name The field name.
+     */
+    void stale(String name) {
+        elements.remove(name);
+        pageStats.reResolves.increment();
+    }
+
+    /**
+     * Drops every cached element of this page instance.
+     */
+    public void clear() {
+        elements.clear();
+    }
+
+    /**
+     * Builds a one-line summary of the cache counts of each page.
+     *
+     * @return The summary.
+     */
+    public static String summary() {
+        StringBuilder sb = new StringBuilder("element cache summary:");
+        for (Map.Entry<String, Stats> page : new TreeMap<String, Stats>(stats).entrySet()) {
+            Stats s = page.getValue();
+            long hits = s.hits.sum();
+            long lookups = hits + s.misses.sum();
+            sb.append(" ").append(page.getKey()).append("=").append(hits).append("/").append(lookups)
+                    .append(" hits, ").append(s.reResolves.sum()).append(" re-resolved;");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,197 @@
+package com.qa.binding;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory copy of the current screen, taken from one {@code getPageSource()} call.
+ * <p>
+ * Reading several elements of the same screen through a snapshot costs one device round trip
+ * instead of a wait, a find and an attribute read per element. Elements are indexed by resource-id,
+ * content-desc, name and text, so XPaths of the form {@code (//type[@attribute="value"])[n]}, which
+ * includes those emitted for accessibility ids and ids, are dictionary lookups. Other XPaths are
+ * evaluated on the parsed document, which costs far more per call.
+ * <p>
+ * Each thread holds at most one snapshot. It is taken lazily on the first read after
+ * {@link #invalidate()}, which every action that can change the screen calls.
+ */
+public class PageSnapshot {
+    static final ThreadLocal<PageSnapshot> current = new ThreadLocal<PageSnapshot>();
+    static final String[] INDEXED = {"resource-id", "content-desc", "name", "text"};
+    static final Pattern ATTRIBUTE_XPATH = Pattern.compile(
+            "^//([\\w.]+|\\*)\\[@(resource-id|content-desc|name|text)=(?:\"([^\"]*)\"|'([^']*)')]$");
+    static final Pattern INDEXED_XPATH = Pattern.compile("^\\((.*)\\)\\[(\\d+)]$");
+
+    static final ThreadLocal<DocumentBuilder> builders = ThreadLocal.withInitial(PageSnapshot::newBuilder);
+    static final ThreadLocal<XPath> xpaths = ThreadLocal.withInitial(() -> XPathFactory.newInstance().newXPath());
+    static final ThreadLocal<Map<String, XPathExpression>> expressions =
+            ThreadLocal.withInitial(HashMap<String, XPathExpression>::new);
+
+    final Document document;
+    final Map<String, Map<String, List<Element>>> index = new HashMap<String, Map<String, List<Element>>>();
+
+    /**
+     * Parses a page source and builds the attribute index.
+     *
+     * @param source The page source XML.
+     */
+    public PageSnapshot(String source) {
+        try {
+            DocumentBuilder builder = builders.get();
+            builder.reset();
+            document = builder.parse(new InputSource(new StringReader(source)));
+        } catch (Exception e) {
+            throw new IllegalStateException("could not parse the page source", e);
+        }
+        for (String attribute : INDEXED) {
+            index.put(attribute, new HashMap<String, List<Element>>());
+        }
+        NodeList all = document.getElementsByTagName("*");
+        for (int i = 0; i < all.getLength(); i++) {
+            Element element = (Element) all.item(i);
+            for (String attribute : INDEXED) {
+                if (element.hasAttribute(attribute)) {
+                    String value = element.getAttribute(attribute);
+                    add(attribute, value, element);
+                    int id = attribute.equals("resource-id") ? value.indexOf(":id/") : -1;
+                    if (id >= 0) {
+                        add(attribute, value.substring(id + 4), element);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets this thread's snapshot, taking one if there is none.
+     *
+     * @param source Supplies the page source when a snapshot has to be taken.
+     * @return The snapshot.
+     */
+    public static PageSnapshot current(Supplier<String> source) {
+        PageSnapshot snapshot = current.get();
+        if (snapshot == null) {
+            snapshot = new PageSnapshot(source.get());
+            current.set(snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Drops this thread's snapshot so the next read takes a fresh one.
+     */
+    public static void invalidate() {
+        current.remove();
+    }
+
+    /**
+     * Finds the first element matching an XPath.
+     *
+     * @param expression The XPath.
+     * @return The element, or null if none matches or the XPath cannot be evaluated here.
+     */
+    public Element find(String expression) {
+        int position = 1;
+        Matcher indexed = INDEXED_XPATH.matcher(expression);
+        Matcher m = ATTRIBUTE_XPATH.matcher(indexed.matches() ? indexed.group(1) : expression);
+        if (m.matches()) {
+            if (indexed.matches()) {
+                position = Integer.parseInt(indexed.group(2));
+            }
+            return lookup(m.group(1), m.group(2), m.group(3) != null ? m.group(3) : m.group(4), position);
+        }
+        try {
+            XPathExpression compiled = expressions.get().get(expression);
+            if (compiled == null) {
+                compiled = xpaths.get().compile(expression);
+                expressions.get().put(expression, compiled);
+            }
+            Node node = (Node) compiled.evaluate(document, XPathConstants.NODE);
+            return node instanceof Element ? (Element) node : null;
+        } catch (XPathExpressionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates the document builder of a thread. Factory lookup is far slower than parsing a
+     * typical page source, so builders, like compiled XPaths, are kept per thread.
+     *
+     * @return The builder.
+     */
+    static DocumentBuilder newBuilder() {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder();
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Finds an element through the attribute index, the equivalent of
+     * {@code (//type[@attribute="value"])[position]}.
+     *
+     * @param type      The element type, or "*".
+     * @param attribute One of the indexed attributes.
+     * @param value     The attribute value.
+     * @param position  The 1-based position among the matches, in document order.
+     * @return The element, or null.
+     */
+    Element lookup(String type, String attribute, String value, int position) {
+        List<Element> found = index.get(attribute).get(value);
+        if (found == null) {
+            return null;
+        }
+        int seen = 0;
+        for (Element element : found) {
+            if ((type.equals("*") || type.equals(element.getTagName())) && ++seen == position) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether a snapshot element was on screen. Android sources mark this with "displayed",
+     * iOS sources with "visible"; elements without either are treated as displayed.
+     *
+     * @param element The element.
+     * @return True if the element was displayed.
+     */
+    public static boolean displayed(Element element) {
+        return !"false".equals(element.getAttribute("displayed")) && !"false".equals(element.getAttribute("visible"));
+    }
+
+    /**
+     * Adds an element to the attribute index.
+     *
+     * @param attribute The attribute name.
+     * @param value     The attribute value.
+     * @param element   The element.
+     */
+    void add(String attribute, String value, Element element) {
+        index.get(attribute).computeIfAbsent(value, k -> new ArrayList<Element>(1)).add(element);
+    }
+}
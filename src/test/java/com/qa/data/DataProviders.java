@@ -0,0 +1,33 @@
+package com.qa.data;
+
+import org.testng.annotations.DataProvider;
+
+import java.util.Iterator;
+
+/**
+ * TestNG data providers backed by {@link TestData}. Use them with
+ * {@code @Test(dataProvider = "...", dataProviderClass = DataProviders.class)}.
+ */
+public class DataProviders {
+
+    /**
+     * Supplies every login user, one {@link LoginUser} per invocation, read lazily from the file.
+     *
+     * @return The invocation arguments.
+     */
+    @DataProvider(name = "loginUsers")
+    public static Iterator<Object[]> loginUsers() {
+        Iterator<LoginUser> users = TestData.stream(LoginUser.FILE, LoginUser::from);
+        return new Iterator<Object[]>() {
+            @Override
+            public boolean hasNext() {
+                return users.hasNext();
+            }
+
+            @Override
+            public Object[] next() {
+                return new Object[]{users.next()};
+            }
+        };
+    }
+}
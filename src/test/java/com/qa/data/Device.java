@@ -0,0 +1,52 @@
+package com.qa.data;
+
+import org.json.JSONObject;
+
+import java.util.Map;
+
+/**
+ * A device from {@code data/devices.json}, with the parameters a {@code <test>} of testng.xml
+ * would otherwise pin to it. Ports are usually left out and leased per session.
+ *
+ * @param platformName         Android or iOS.
+ * @param udid                 The device UDID.
+ * @param deviceName           The device name.
+ * @param emulator             "true" for an Android emulator started from its AVD.
+ * @param systemPort           The Android system port, or null to lease a free one.
+ * @param chromeDriverPort     The Android ChromeDriver port, or null to lease a free one.
+ * @param wdaLocalPort         The iOS WDA local port, or null to lease a free one.
+ * @param webkitDebugProxyPort The iOS WebKit debug proxy port, or null to lease a free one.
+ */
+public record Device(String platformName, String udid, String deviceName, String emulator, String systemPort,
+                     String chromeDriverPort, String wdaLocalPort, String webkitDebugProxyPort) {
+    static final String FILE = "data/devices.json";
+
+    /**
+     * Binds a JSON entry to a Device.
+     *
+     * @param json The entry.
+     * @return The device.
+     */
+    public static Device from(JSONObject json) {
+        return new Device(json.getString("platformName"), json.getString("udid"), json.getString("deviceName"),
+                String.valueOf(json.optBoolean("emulator")), json.optString("systemPort", null),
+                json.optString("chromeDriverPort", null), json.optString("wdaLocalPort", null),
+                json.optString("webkitDebugProxyPort", null));
+    }
+
+    /**
+     * Gets every device in the data file, keyed by name.
+     *
+     * @return The devices.
+     */
+    public static Map<String, Device> all() {
+        return Holder.DEVICES;
+    }
+
+    /**
+     * Parses the file on first use, once per JVM.
+     */
+    static class Holder {
+        static final Map<String, Device> DEVICES = TestData.named(FILE, Device::from);
+    }
+}
@@ -0,0 +1,55 @@
+package com.qa.data;
+
+import org.json.JSONObject;
+
+import java.util.Map;
+
+/**
+ * A user from {@code data/loginUsers.json}.
+ *
+ * @param username The user name.
+ * @param password The password.
+ */
+public record LoginUser(String username, String password) {
+    static final String FILE = "data/loginUsers.json";
+
+    /**
+     * Binds a JSON entry to a LoginUser.
+     *
+     * @param json The entry.
+     * @return The user.
+     */
+    public static LoginUser from(JSONObject json) {
+        return new LoginUser(json.getString("username"), json.getString("password"));
+    }
+
+    /**
+     * Gets a user by its name in the data file, e.g. "validUser".
+     *
+     * @param name The entry name.
+     * @return The user.
+     */
+    public static LoginUser get(String name) {
+        LoginUser user = Holder.USERS.get(name);
+        if (user == null) {
+            throw new IllegalArgumentException("no login user named " + name + " in " + FILE);
+        }
+        return user;
+    }
+
+    /**
+     * Gets every user in the data file, keyed by name.
+     *
+     * @return The users.
+     */
+    public static Map<String, LoginUser> all() {
+        return Holder.USERS;
+    }
+
+    /**
+     * Parses the file on first use, once per JVM.
+     */
+    static class Holder {
+        static final Map<String, LoginUser> USERS = TestData.named(FILE, LoginUser::from);
+    }
+}
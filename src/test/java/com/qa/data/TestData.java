@@ -0,0 +1,149 @@
+package com.qa.data;
+
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * This class loads JSON test data files from the classpath and binds their entries to typed records.
+ * <p>
+ * {@link #named(String, Function)} materializes a small file as an immutable map; callers keep the
+ * result in a static field so each file is parsed once per JVM. {@link #stream(String, Function)}
+ * reads one entry at a time, for data sets too large to hold in memory.
+ * <p>
+ * Files are either a JSON object whose values are entries, keyed by name, or a JSON array of entries.
+ */
+public class TestData {
+
+    /**
+     * Loads every entry of a data file, keyed by name.
+     *
+     * @param file   The classpath resource name, e.g. "data/loginUsers.json".
+     * @param binder Converts one JSON entry to its record.
+     * @param <T>    The record type.
+     * @return An immutable map of entry names to records, in file order. Array entries are keyed by index.
+     */
+    public static <T> Map<String, T> named(String file, Function<JSONObject, T> binder) {
+        Map<String, T> entries = new LinkedHashMap<String, T>();
+        try (Entries<T> it = new Entries<T>(file, binder)) {
+            while (it.hasNext()) {
+                T entry = it.next();
+                entries.put(it.lastName, entry);
+            }
+        }
+        return Collections.unmodifiableMap(entries);
+    }
+
+    /**
+     * Streams the entries of a data file one at a time. The file is closed when the
+     * iterator is exhausted.
+     *
+     * @param file   The classpath resource name.
+     * @param binder Converts one JSON entry to its record.
+     * @param <T>    The record type.
+     * @return An iterator over the records.
+     */
+    public static <T> Iterator<T> stream(String file, Function<JSONObject, T> binder) {
+        return new Entries<T>(file, binder);
+    }
+
+    /**
+     * Incremental reader over the top-level object or array of a data file.
+     */
+    static class Entries<T> implements Iterator<T>, AutoCloseable {
+        final Reader reader;
+        final JSONTokener tokener;
+        final Function<JSONObject, T> binder;
+        final boolean keyed;
+        String lastName;
+        int index;
+        boolean done;
+
+        Entries(String file, Function<JSONObject, T> binder) {
+            InputStream is = TestData.class.getClassLoader().getResourceAsStream(file);
+            if (is == null) {
+                throw new IllegalArgumentException("test data file not found: " + file);
+            }
+            this.reader = new InputStreamReader(is, StandardCharsets.UTF_8);
+            this.tokener = new JSONTokener(reader);
+            this.binder = binder;
+            char open = tokener.nextClean();
+            if (open != '{' && open != '[') {
+                close();
+                throw tokener.syntaxError("test data must be a JSON object or array");
+            }
+            this.keyed = open == '{';
+            this.done = peekEnd();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !done;
+        }
+
+        @Override
+        public T next() {
+            if (done) {
+                throw new NoSuchElementException();
+            }
+            if (keyed) {
+                lastName = tokener.nextValue().toString();
+                if (tokener.nextClean() != ':') {
+                    throw tokener.syntaxError("expected ':'");
+                }
+            } else {
+                lastName = String.valueOf(index);
+            }
+            index++;
+            T entry = binder.apply((JSONObject) tokener.nextValue());
+            char c = tokener.nextClean();
+            if (c == ',') {
+                done = peekEnd();
+            } else if (c == '}' || c == ']') {
+                done = true;
+            } else {
+                throw tokener.syntaxError("expected ',' or end of " + (keyed ? "object" : "array"));
+            }
+            if (done) {
+                close();
+            }
+            return entry;
+        }
+
+        /**
+         * Checks for an empty container (or a trailing comma) without consuming an entry.
+         *
+         * @return True if the container ends here.
+         */
+        boolean peekEnd() {
+            char c = tokener.nextClean();
+            if (c == '}' || c == ']') {
+                close();
+                return true;
+            }
+            tokener.back();
+            return false;
+        }
+
+        @Override
+        public void close() {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.qa.devices;
+
+import com.qa.data.Device;
+import com.qa.utils.TestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class treats the devices of {@code data/devices.json} as a pool per platform, so test
+ * methods are pulled by whichever device of the right platform is idle instead of being
+ * partitioned up front.
+ * <p>
+ * A worker thread leases a device before each test method and returns it afterwards. Faster
+ * devices come back sooner and therefore run more methods; a slow device only holds up the
+ * method it is running. A thread gets the device it had last when that device is idle, which
+ * keeps the device's warm session and log file on the same thread.
+ */
+public class DevicePool {
+    static final long LEASE_TIMEOUT_MINUTES = 30;
+
+    static volatile Map<String, BlockingDeque<Device>> idleDevices;
+    static final Map<String, List<Device>> devices = new ConcurrentHashMap<String, List<Device>>();
+    static final Map<Device, Stats> stats = new ConcurrentHashMap<Device, Stats>();
+    static final ThreadLocal<Device> lastDevice = new ThreadLocal<Device>();
+    static TestUtils utils = new TestUtils();
+
+    /**
+     * Per-device counters for the end of suite summary.
+     */
+    static class Stats {
+        final LongAdder tests = new LongAdder();
+        final LongAdder busyMillis = new LongAdder();
+        volatile long leasedAt;
+    }
+
+    /**
+     * Replaces the pool with the given devices. Without a call, the pool is filled from
+     * {@code data/devices.json} on first use.
+     *
+     * @param devices The devices.
+     */
+    public static synchronized void use(Collection<Device> devices) {
+        Map<String, BlockingDeque<Device>> pool = new ConcurrentHashMap<String, BlockingDeque<Device>>();
+        for (Device device : devices) {
+            pool.computeIfAbsent(device.platformName().toLowerCase(), k -> new LinkedBlockingDeque<Device>())
+                    .offerLast(device);
+        }
+        stats.clear();
+        DevicePool.devices.clear();
+        pool.forEach((platform, idle) -> DevicePool.devices.put(platform, List.copyOf(idle)));
+        idleDevices = pool;
+    }
+
+    /**
+     * Gets the idle devices per platform, loading the data file on first use.
+     *
+     * @return The pool.
+     */
+    static Map<String, BlockingDeque<Device>> pool() {
+        if (idleDevices == null) {
+            synchronized (DevicePool.class) {
+                if (idleDevices == null) {
+                    use(Device.all().values());
+                }
+            }
+        }
+        return idleDevices;
+    }
+
+    /**
+     * Counts the devices of a platform, idle or leased.
+     *
+     * @param platformName Android or iOS.
+     * @return The number of devices.
+     */
+    public static int size(String platformName) {
+        return devices(platformName).size();
+    }
+
+    /**
+     * Gets the devices of a platform, idle or leased.
+     *
+     * @param platformName Android or iOS.
+     * @return The devices.
+     */
+    public static List<Device> devices(String platformName) {
+        pool();
+        return devices.getOrDefault(platformName.toLowerCase(), List.of());
+    }
+
+    /**
+     * Gets the devices of every platform, idle or leased.
+     *
+     * @return The devices.
+     */
+    public static List<Device> devices() {
+        pool();
+        List<Device> all = new ArrayList<Device>();
+        devices.values().forEach(all::addAll);
+        return all;
+    }
+
+    /**
+     * Leases an idle device of the platform, waiting for one to be released if all are busy.
+     *
+     * @param platformName Android or iOS.
+     * @return The device.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public static Device lease(String platformName) throws InterruptedException {
+        BlockingDeque<Device> idle = pool().get(platformName.toLowerCase());
+        if (idle == null) {
+            throw new IllegalStateException("no " + platformName + " device in the device pool");
+        }
+        Device device = lastDevice.get();
+        if (device == null || !idle.remove(device)) {
+            long start = System.currentTimeMillis();
+            device = idle.pollFirst(LEASE_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+            if (device == null) {
+                throw new IllegalStateException("no " + platformName + " device became idle within "
+                        + LEASE_TIMEOUT_MINUTES + " minutes");
+            }
+            long waited = System.currentTimeMillis() - start;
+            if (waited > 1000) {
+                utils.log().info("waited " + waited + " ms for a " + platformName + " device");
+            }
+        }
+        lastDevice.set(device);
+        stats.computeIfAbsent(device, k -> new Stats()).leasedAt = System.currentTimeMillis();
+        return device;
+    }
+
+    /**
+     * Returns a leased device to the pool.
+     *
+     * @param device The device.
+     */
+    public static void release(Device device) {
+        Stats s = stats.get(device);
+        if (s != null && s.leasedAt > 0) {
+            s.tests.increment();
+            s.busyMillis.add(System.currentTimeMillis() - s.leasedAt);
+            s.leasedAt = 0;
+        }
+        // released devices go to the back, so an idle thread picks the device that rested longest
+        pool().get(device.platformName().toLowerCase()).offerLast(device);
+    }
+
+    /**
+     * Builds a one-line summary of how many test methods each device ran and how long it was busy.
+     *
+     * @return The summary.
+     */
+    public static String summary() {
+        StringBuilder sb = new StringBuilder("device pool summary:");
+        List<Map.Entry<Device, Stats>> devices = new ArrayList<Map.Entry<Device, Stats>>(stats.entrySet());
+        devices.sort(Map.Entry.comparingByKey((a, b) -> a.deviceName().compareTo(b.deviceName())));
+        for (Map.Entry<Device, Stats> device : devices) {
+            long n = device.getValue().tests.sum();
+            if (n > 0) {
+                long busy = device.getValue().busyMillis.sum();
+                sb.append(" ").append(device.getKey().deviceName()).append("=").append(n).append("x/")
+                        .append(busy).append("ms (avg ").append(busy / n).append("ms)");
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,405 @@
+package com.qa.devices;
+
+import com.qa.data.Device;
+import com.qa.sessions.PortAllocator;
+import com.qa.utils.Settings;
+import com.qa.utils.TestUtils;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class boots the Android emulators of the {@link DevicePool} itself, instead of leaving a
+ * cold boot of the AVD to Appium on every run.
+ * <p>
+ * With {@code manageEmulators=true}, each pooled Android device with {@code "emulator": true} is
+ * an AVD to start instances of. {@link #plan(int)} decides how many instances to start from the
+ * number of queued test methods, the cores ({@code emulatorCores} per instance) and the free memory
+ * ({@code emulatorMemoryMb} per instance), capped by {@code maxEmulators}, and puts them in the pool
+ * in place of their AVD. {@link #boot()} starts them headless and read-only from the Quick Boot
+ * snapshot {@code emulatorSnapshot}, so several instances of one AVD can run side by side and none
+ * of them changes the snapshot. When an emulator moves on to the next shard, a new
+ * {@code <test>}, it is reset by loading the snapshot again, which takes seconds instead of a reboot.
+ * <p>
+ * The emulator and adb commands are {@code $ANDROID_HOME/emulator/emulator} and
+ * {@code $ANDROID_HOME/platform-tools/adb}; run with {@code -DemulatorBinary} and
+ * {@code -DadbBinary} to use other commands, such as {@link com.qa.fake.FakeEmulator}. On hosts
+ * without KVM, add {@code -accel off} to {@code emulatorArgs}. Every setting can also be given as a
+ * system property.
+ */
+public class EmulatorManager {
+    static final long FIRST_POLL_MILLIS = 500;
+    static final long MAX_POLL_MILLIS = 2000;
+    static final long KILL_SECONDS = 10;
+
+    static final List<Instance> instances = new CopyOnWriteArrayList<Instance>();
+    static final Map<Device, Instance> byDevice = new ConcurrentHashMap<Device, Instance>();
+    static TestUtils utils = new TestUtils();
+
+    /**
+     * One running emulator.
+     */
+    static class Instance {
+        final String avd;
+        final PortAllocator.Lease ports;
+        final Device device;
+        Process process;
+        long bootMillis = -1;
+        int restores;
+        long restoreMillis;
+        String lastShard;
+
+        Instance(String avd, PortAllocator.Lease ports, Device device) {
+            this.avd = avd;
+            this.ports = ports;
+            this.device = device;
+        }
+
+        /**
+         * Gets the adb serial of the emulator.
+         *
+         * @return The serial, e.g. "emulator-5554".
+         */
+        String serial() {
+            return "emulator-" + ports.port(0);
+        }
+    }
+
+    /**
+     * Checks whether the framework manages the emulators, see {@code manageEmulators}.
+     *
+     * @return True if it does.
+     */
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(Settings.get("manageEmulators", "false"));
+    }
+
+    /**
+     * Works out how many emulators to start: one per queued test method at most, and no more than
+     * the cores and the free memory of the host carry.
+     *
+     * @param queued The number of queued test methods.
+     * @return The number of emulators, at least 1.
+     */
+    static int emulatorCount(int queued) {
+        int byCores = Runtime.getRuntime().availableProcessors() / Integer.parseInt(Settings.get("emulatorCores", "2"));
+        long freeMb = ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+                .getFreeMemorySize() / (1024 * 1024);
+        long byMemory = freeMb / Long.parseLong(Settings.get("emulatorMemoryMb", "2048"));
+        String max = Settings.get("maxEmulators", "auto");
+        int count = (int) Math.min(Math.min(queued, byCores), byMemory);
+        if (!max.isEmpty() && !max.equalsIgnoreCase("auto")) {
+            count = Math.min(count, Integer.parseInt(max.trim()));
+        }
+        utils.log().info("emulators: " + queued + " queued method(s), room for " + byCores + " by cores and "
+                + byMemory + " by memory (" + freeMb + " MB free)");
+        return Math.max(1, count);
+    }
+
+    /**
+     * Replaces the emulator AVDs of the pool with the instances to start, spread evenly over the
+     * AVDs. Does nothing if there is no AVD in the pool or the instances are already planned.
+     *
+     * @param queued The number of Android test methods queued for the pool.
+     */
+    public static synchronized void plan(int queued) {
+        if (!instances.isEmpty()) {
+            return;
+        }
+        List<Device> avds = new ArrayList<Device>();
+        List<Device> others = new ArrayList<Device>();
+        for (Device device : DevicePool.devices()) {
+            boolean avd = device.platformName().equalsIgnoreCase("Android") && "true".equalsIgnoreCase(device.emulator());
+            (avd ? avds : others).add(device);
+        }
+        if (avds.isEmpty()) {
+            return;
+        }
+        int count = emulatorCount(queued);
+        String range = Settings.get("emulatorPortRange", "5554-5681");
+        for (int i = 0; i < count; i++) {
+            Device avd = avds.get(i % avds.size());
+            // console port and adb port, the console port even as the emulator requires
+            PortAllocator.Lease ports = PortAllocator.leaseBlock(2, range);
+            // the instance is already running when Appium sees it, so Appium must not start the AVD
+            Device device = new Device(avd.platformName(), "emulator-" + ports.port(0),
+                    avd.deviceName() + "_" + ports.port(0), "false", avd.systemPort(), avd.chromeDriverPort(),
+                    avd.wdaLocalPort(), avd.webkitDebugProxyPort());
+            Instance instance = new Instance(avd.deviceName(), ports, device);
+            instances.add(instance);
+            byDevice.put(device, instance);
+            others.add(device);
+        }
+        DevicePool.use(others);
+        utils.log().info("planned " + count + " emulator(s) of " + avds.size() + " AVD(s) for " + queued
+                + " queued method(s)");
+    }
+
+    /**
+     * Boots the planned emulators in parallel and waits until each has finished booting. An emulator
+     * that fails to boot is stopped and taken out of the pool.
+     *
+     * @throws IllegalStateException If no emulator booted.
+     */
+    public static void boot() {
+        if (instances.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        List<Instance> failed = Collections.synchronizedList(new ArrayList<Instance>());
+        // a thread per emulator, since they mostly wait on the emulator processes
+        List<Thread> threads = new ArrayList<Thread>();
+        for (Instance instance : instances) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start(instance);
+                } catch (Exception e) {
+                    utils.log().error("emulator " + instance.serial() + " (" + instance.avd + ") did not boot: " + e.getMessage());
+                    failed.add(instance);
+                }
+            }, "boot-" + instance.serial());
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while booting the emulators", e);
+            }
+        }
+        for (Instance instance : failed) {
+            stop(instance);
+            instances.remove(instance);
+            byDevice.remove(instance.device);
+        }
+        if (instances.isEmpty()) {
+            throw new IllegalStateException("none of the planned emulators booted, see logs" + File.separator + "emulators");
+        }
+        if (!failed.isEmpty()) {
+            List<Device> remaining = new ArrayList<Device>(DevicePool.devices());
+            failed.forEach(instance -> remaining.remove(instance.device));
+            DevicePool.use(remaining);
+        }
+        utils.log().info("booted " + instances.size() + " emulator(s) in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Starts one emulator from the snapshot and waits for it to boot.
+     *
+     * @param instance The emulator.
+     * @throws Exception If it does not boot within {@code emulatorBootTimeout} seconds.
+     */
+    static void start(Instance instance) throws Exception {
+        List<String> command = new ArrayList<String>(command("emulatorBinary", "emulator" + File.separator + "emulator"));
+        command.addAll(Arrays.asList("-avd", instance.avd, "-port", String.valueOf(instance.ports.port(0)),
+                "-snapshot", Settings.get("emulatorSnapshot", "default_boot"), "-no-snapshot-save", "-read-only"));
+        String extra = Settings.get("emulatorArgs", "").trim();
+        if (!extra.isEmpty()) {
+            command.addAll(Arrays.asList(extra.split("\\s+")));
+        }
+        File log = new File("logs" + File.separator + "emulators" + File.separator + instance.serial() + ".log");
+        log.getParentFile().mkdirs();
+        long start = System.currentTimeMillis();
+        instance.process = new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log)).start();
+        awaitBoot(instance, TimeUnit.SECONDS.toMillis(Long.parseLong(Settings.get("emulatorBootTimeout", "180"))));
+        instance.bootMillis = System.currentTimeMillis() - start;
+        utils.log().info("emulator " + instance.serial() + " (" + instance.avd + ") booted in " + instance.bootMillis + " ms");
+    }
+
+    /**
+     * Polls {@code sys.boot_completed} until it is 1, backing off from 500 ms to 2 s.
+     *
+     * @param instance      The emulator.
+     * @param timeoutMillis How long to wait.
+     * @throws Exception If the emulator exits or does not finish booting in time.
+     */
+    static void awaitBoot(Instance instance, long timeoutMillis) throws Exception {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long poll = FIRST_POLL_MILLIS;
+        while (!"1".equals(adb(instance, "shell", "getprop", "sys.boot_completed"))) {
+            if (instance.process != null && !instance.process.isAlive()) {
+                throw new IllegalStateException("the emulator exited with " + instance.process.exitValue());
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new IllegalStateException("not booted within " + timeoutMillis / 1000 + " s");
+            }
+            Thread.sleep(poll);
+            poll = Math.min(poll * 2, MAX_POLL_MILLIS);
+        }
+    }
+
+    /**
+     * Records that a device runs a method of a shard, and tells whether it comes from another
+     * shard and should be reset with {@link #restore(Device)} first.
+     *
+     * @param device The leased device.
+     * @param shard  The name of the {@code <test>}.
+     * @return True for a managed emulator that ran another shard before.
+     */
+    public static boolean isNewShard(Device device, String shard) {
+        Instance instance = byDevice.get(device);
+        if (instance == null) {
+            return false;
+        }
+        String last = instance.lastShard;
+        instance.lastShard = shard;
+        return last != null && !last.equals(shard);
+    }
+
+    /**
+     * Resets a managed emulator by loading its snapshot again. The device must be leased and its
+     * sessions quit, since loading the snapshot ends the driver server on the device.
+     *
+     * @param device The device.
+     * @throws Exception If the snapshot cannot be loaded or the emulator does not come back.
+     */
+    public static void restore(Device device) throws Exception {
+        Instance instance = byDevice.get(device);
+        if (instance == null) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        String snapshot = Settings.get("emulatorSnapshot", "default_boot");
+        String out = adb(instance, "emu", "avd", "snapshot", "load", snapshot);
+        if (!out.contains("OK")) {
+            throw new IllegalStateException("could not load snapshot " + snapshot + " on " + instance.serial() + ": " + out);
+        }
+        awaitBoot(instance, TimeUnit.SECONDS.toMillis(Long.parseLong(Settings.get("emulatorBootTimeout", "180"))));
+        long elapsed = System.currentTimeMillis() - start;
+        synchronized (instance) {
+            instance.restores++;
+            instance.restoreMillis += elapsed;
+        }
+        utils.log().info("emulator " + instance.serial() + " restored to snapshot " + snapshot + " in " + elapsed + " ms");
+    }
+
+    /**
+     * Gets the device model of a device name: the AVD of a managed emulator, else the name itself.
+     *
+     * @param deviceName The device name.
+     * @return The model.
+     */
+    public static String modelOf(String deviceName) {
+        for (Instance instance : instances) {
+            if (instance.device.deviceName().equals(deviceName)) {
+                return instance.avd;
+            }
+        }
+        return deviceName;
+    }
+
+    /**
+     * Builds a one-line summary of the boot time and snapshot restores of each emulator.
+     *
+     * @return The summary.
+     */
+    public static String summary() {
+        StringBuilder sb = new StringBuilder("emulator summary:");
+        for (Instance instance : instances) {
+            sb.append(" ").append(instance.device.deviceName()).append("=boot ").append(instance.bootMillis).append("ms/")
+                    .append(instance.restores).append(" restore(s)");
+            if (instance.restores > 0) {
+                sb.append(" (avg ").append(instance.restoreMillis / instance.restores).append("ms)");
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Stops every emulator and releases its ports. Called once at the end of the suite, after the
+     * sessions are quit.
+     */
+    public static void stopAll() {
+        for (Instance instance : instances) {
+            stop(instance);
+        }
+        if (!instances.isEmpty()) {
+            utils.log().info("stopped " + instances.size() + " emulator(s)");
+        }
+        instances.clear();
+        byDevice.clear();
+    }
+
+    /**
+     * Asks an emulator to shut down through its console, and kills it if it does not.
+     *
+     * @param instance The emulator.
+     */
+    static void stop(Instance instance) {
+        try {
+            if (instance.process != null && instance.process.isAlive()) {
+                adb(instance, "emu", "kill");
+                if (!instance.process.waitFor(KILL_SECONDS, TimeUnit.SECONDS)) {
+                    instance.process.destroyForcibly();
+                }
+            }
+        } catch (Exception e) {
+            utils.log().error("error stopping emulator " + instance.serial() + ": " + e.toString());
+            instance.process.destroyForcibly();
+        } finally {
+            instance.ports.close();
+        }
+    }
+
+    /**
+     * Runs an adb command against an emulator and returns its output.
+     *
+     * @param instance The emulator.
+     * @param args     The adb arguments after {@code -s <serial>}.
+     * @return The trimmed output, empty if adb failed.
+     * @throws Exception If adb cannot be run or does not finish within 30 s.
+     */
+    static String adb(Instance instance, String... args) throws Exception {
+        List<String> command = new ArrayList<String>(command("adbBinary", "platform-tools" + File.separator + "adb"));
+        command.add("-s");
+        command.add(instance.serial());
+        command.addAll(Arrays.asList(args));
+        // a file rather than a pipe, so a hung adb cannot block the read past the timeout
+        Path output = Files.createTempFile("adb-", ".out");
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                    .redirectOutput(output.toFile()).start();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IllegalStateException("adb " + String.join(" ", args) + " timed out");
+            }
+            return process.exitValue() == 0 ? new String(Files.readAllBytes(output), StandardCharsets.UTF_8).trim() : "";
+        } finally {
+            Files.deleteIfExists(output);
+        }
+    }
+
+    /**
+     * Gets an SDK command: the system property, which may hold several words, else the tool under
+     * {@code $ANDROID_HOME} (or {@code $ANDROID_SDK_ROOT}), else the tool's name on the PATH.
+     *
+     * @param property The system property, e.g. "adbBinary".
+     * @param sdkPath  The tool's path under the SDK, e.g. "platform-tools/adb".
+     * @return The command words.
+     */
+    static List<String> command(String property, String sdkPath) {
+        String override = System.getProperty(property);
+        if (override != null && !override.isBlank()) {
+            return Arrays.asList(override.trim().split("\\s+"));
+        }
+        String sdk = System.getenv("ANDROID_HOME") != null ? System.getenv("ANDROID_HOME") : System.getenv("ANDROID_SDK_ROOT");
+        if (sdk != null && new File(sdk, sdkPath).canExecute()) {
+            return List.of(new File(sdk, sdkPath).getPath());
+        }
+        return List.of(new File(sdkPath).getName());
+    }
+}
@@ -0,0 +1,23 @@
+package com.qa.devices;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Restricts a test class or method to the given platforms. In a {@code <test>} for another
+ * platform the method is not run at all; the method annotation wins over the class annotation.
+ * Tests without the annotation run on every platform.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface RunOn {
+
+    /**
+     * The platforms the test runs on, e.g. "Android".
+     *
+     * @return The platform names.
+     */
+    String[] value();
+}
@@ -0,0 +1,290 @@
+package com.qa.fake;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openqa.selenium.remote.http.Contents;
+import org.openqa.selenium.remote.http.HttpHandler;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory stand-in for the Appium W3C endpoint, used to exercise the framework without a device.
+ * <p>
+ * It answers the commands the framework sends (sessions, element lookups and actions, attributes,
+ * page source, screenshots, recordings, app lifecycle and {@code mobile:} scripts) instantly. Every
+ * element is found and displayed; the text of an element comes from the first entry of
+ * {@link #texts} whose key appears in its locator, so the SwagLabs assertions pass.
+ */
+public class FakeAppiumBackend implements HttpHandler {
+    static final String ELEMENT_KEY = "element-6066-11e4-a52e-4f735466cecf";
+    static final Pattern SESSION_PATH = Pattern.compile("^/session/([^/]+)(/.*)?$");
+    static final Pattern ELEMENT_PATH = Pattern.compile("^/element/([^/]+)(/.*)?$");
+    static final byte[] PNG = Base64.getDecoder().decode(
+            "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNkYPhfDwAChwGA60e6kgAAAABJRU5ErkJggg==");
+
+    final Map<String, String> texts = new LinkedHashMap<String, String>();
+    final Map<String, JSONObject> sessions = new ConcurrentHashMap<String, JSONObject>();
+    final Map<String, String> elements = new ConcurrentHashMap<String, String>();
+    final AtomicLong ids = new AtomicLong();
+
+    /**
+     * Creates a backend that answers with the SwagLabs texts from strings.xml.
+     */
+    public FakeAppiumBackend() {
+        texts.put("test-Error message", "Username and password do not match any user in this service.");
+        texts.put("PRODUCTS", "PRODUCTS");
+        texts.put("test-Toggle", "PRODUCTS");
+        texts.put("test-Item title", "Sauce Labs Backpack");
+        texts.put("test-Price", "$29.99");
+        texts.put("StaticText[2]", "carry.allTheThings() with the sleek, streamlined Sly Pack that melds uncompromising style"
+                + " with unequaled laptop and tablet protection.");
+        texts.put("test-Description", "Sauce Labs Backpack");
+    }
+
+    /**
+     * Gets the number of sessions currently open.
+     *
+     * @return The session count.
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest req) {
+        String path = req.getUri();
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        HttpMethod method = req.getMethod();
+
+        if (path.equals("/status")) {
+            return ok(new JSONObject().put("ready", true).put("message", "fake appium ready"));
+        }
+        if (path.equals("/session") && method == HttpMethod.POST) {
+            return newSession(new JSONObject(Contents.string(req)));
+        }
+        Matcher m = SESSION_PATH.matcher(path);
+        if (!m.matches()) {
+            return error(404, "unknown command", path);
+        }
+        String sessionId = m.group(1);
+        String command = m.group(2) == null ? "" : m.group(2);
+        JSONObject session = sessions.get(sessionId);
+        if (session == null) {
+            return error(404, "invalid session id", sessionId);
+        }
+        if (command.isEmpty()) {
+            if (method == HttpMethod.DELETE) {
+                sessions.remove(sessionId);
+                return ok(JSONObject.NULL);
+            }
+            return ok(session);
+        }
+        return sessionCommand(method, command, req, session);
+    }
+
+    /**
+     * Answers a command addressed to an existing session.
+     *
+     * @param method  The HTTP method.
+     * @param command The path after {@code /session/<id>}.
+     * @param req     The request.
+     * @param session The session capabilities.
+     * @return The response.
+     */
+    HttpResponse sessionCommand(HttpMethod method, String command, HttpRequest req, JSONObject session) {
+        switch (command) {
+            case "/timeouts":
+                return method == HttpMethod.GET
+                        ? ok(new JSONObject().put("implicit", 0).put("pageLoad", 300000).put("script", 30000))
+                        : ok(JSONObject.NULL);
+            case "/element":
+                return ok(newElement(new JSONObject(Contents.string(req))));
+            case "/elements":
+                return ok(new JSONArray().put(newElement(new JSONObject(Contents.string(req)))));
+            case "/source":
+                return ok(pageSource(session.optString("platformName")));
+            case "/screenshot":
+                return ok(Base64.getEncoder().encodeToString(PNG));
+            case "/appium/start_recording_screen":
+                return ok("");
+            case "/execute/sync":
+                return ok(script(new JSONObject(Contents.string(req)).optString("script")));
+            case "/appium/device/activate_app":
+                return ok(JSONObject.NULL);
+            case "/appium/stop_recording_screen":
+                return ok(Base64.getEncoder().encodeToString("fake video".getBytes(StandardCharsets.US_ASCII)));
+            case "/appium/device/terminate_app":
+                return ok(true);
+            default:
+                break;
+        }
+        Matcher m = ELEMENT_PATH.matcher(command);
+        if (!m.matches()) {
+            return ok(JSONObject.NULL);
+        }
+        String locator = elements.get(m.group(1));
+        if (locator == null) {
+            return error(404, "stale element reference", m.group(1));
+        }
+        String action = m.group(2) == null ? "" : m.group(2);
+        if (action.equals("/element")) {
+            return ok(newElement(new JSONObject(Contents.string(req))));
+        }
+        if (action.equals("/elements")) {
+            return ok(new JSONArray().put(newElement(new JSONObject(Contents.string(req)))));
+        }
+        if (action.startsWith("/attribute/") || action.equals("/text")) {
+            return ok(textOf(locator));
+        }
+        if (action.equals("/displayed") || action.equals("/enabled")) {
+            return ok(true);
+        }
+        if (action.equals("/selected")) {
+            return ok(false);
+        }
+        if (action.equals("/rect")) {
+            return ok(new JSONObject().put("x", 0).put("y", 0).put("width", 100).put("height", 40));
+        }
+        return ok(JSONObject.NULL);
+    }
+
+    /**
+     * Answers an {@code executeScript} call; only {@code mobile:} extensions are expected.
+     *
+     * @param script The script name, e.g. "mobile: terminateApp".
+     * @return The script result.
+     */
+    Object script(String script) {
+        switch (script) {
+            case "mobile: terminateApp":
+                return true;
+            case "mobile: queryAppState":
+                return 4;
+            default:
+                return JSONObject.NULL;
+        }
+    }
+
+    /**
+     * Creates a session, echoing the requested capabilities back.
+     *
+     * @param body The new session request.
+     * @return The response.
+     */
+    HttpResponse newSession(JSONObject body) {
+        JSONObject caps = new JSONObject();
+        JSONObject requested = body.optJSONObject("capabilities");
+        if (requested != null && requested.optJSONObject("alwaysMatch") != null) {
+            JSONObject alwaysMatch = requested.getJSONObject("alwaysMatch");
+            for (String key : alwaysMatch.keySet()) {
+                int colon = key.indexOf(':');
+                caps.put(colon >= 0 ? key.substring(colon + 1) : key, alwaysMatch.get(key));
+            }
+        }
+        String sessionId = "fake-" + ids.incrementAndGet();
+        sessions.put(sessionId, caps);
+        return ok(new JSONObject().put("sessionId", sessionId).put("capabilities", caps));
+    }
+
+    /**
+     * Registers a found element for the given locator.
+     *
+     * @param body The find request, with "using" and "value".
+     * @return The W3C element reference.
+     */
+    JSONObject newElement(JSONObject body) {
+        String id = "el-" + ids.incrementAndGet();
+        elements.put(id, body.optString("using") + ":" + body.optString("value"));
+        return new JSONObject().put(ELEMENT_KEY, id);
+    }
+
+    /**
+     * Gets the text of the element found with the given locator.
+     *
+     * @param locator The "using:value" locator.
+     * @return The text, or an empty string.
+     */
+    String textOf(String locator) {
+        for (Map.Entry<String, String> text : texts.entrySet()) {
+            if (locator.contains(text.getKey())) {
+                return text.getValue();
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Builds a small page source with the SwagLabs product screen for the given platform.
+     *
+     * @param platform The session platform.
+     * @return The XML page source.
+     */
+    String pageSource(String platform) {
+        if ("iOS".equalsIgnoreCase(platform)) {
+            return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><AppiumAUT><XCUIElementTypeApplication name=\"Swag Labs\" visible=\"true\">"
+                    + "<XCUIElementTypeOther name=\"test-Menu\" visible=\"true\"><XCUIElementTypeOther visible=\"true\"/></XCUIElementTypeOther>"
+                    + "<XCUIElementTypeStaticText name=\"test-Item title\" label=\"Sauce Labs Backpack\" visible=\"true\"/>"
+                    + "<XCUIElementTypeStaticText name=\"test-Price\" label=\"$29.99\" visible=\"true\"/>"
+                    + "</XCUIElementTypeApplication></AppiumAUT>";
+        }
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><hierarchy>"
+                + "<android.widget.FrameLayout displayed=\"true\">"
+                + "<android.view.ViewGroup content-desc=\"test-Menu\" displayed=\"true\"><android.view.ViewGroup displayed=\"true\">"
+                + "<android.widget.ImageView displayed=\"true\"/></android.view.ViewGroup></android.view.ViewGroup>"
+                + "<android.widget.TextView text=\"PRODUCTS\" displayed=\"true\"/>"
+                + "<android.widget.TextView content-desc=\"test-Item title\" text=\"Sauce Labs Backpack\" displayed=\"true\"/>"
+                + "<android.widget.TextView content-desc=\"test-Price\" text=\"$29.99\" displayed=\"true\"/>"
+                + "</android.widget.FrameLayout></hierarchy>";
+    }
+
+    /**
+     * Builds a successful W3C response.
+     *
+     * @param value The value.
+     * @return The response.
+     */
+    static HttpResponse ok(Object value) {
+        return json(200, new JSONObject().put("value", value));
+    }
+
+    /**
+     * Builds a W3C error response.
+     *
+     * @param status  The HTTP status.
+     * @param error   The W3C error code.
+     * @param message The message.
+     * @return The response.
+     */
+    static HttpResponse error(int status, String error, String message) {
+        return json(status, new JSONObject().put("value",
+                new JSONObject().put("error", error).put("message", message).put("stacktrace", "")));
+    }
+
+    /**
+     * Builds a JSON response.
+     *
+     * @param status The HTTP status.
+     * @param body   The body.
+     * @return The response.
+     */
+    static HttpResponse json(int status, JSONObject body) {
+        HttpResponse res = new HttpResponse();
+        res.setStatus(status);
+        res.setHeader("Content-Type", "application/json; charset=utf-8");
+        res.setContent(Contents.utf8String(body.toString()));
+        return res;
+    }
+}
@@ -0,0 +1,396 @@
+package com.qa.fake;
+
+import com.qa.sessions.AppiumFarm;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openqa.selenium.remote.http.Contents;
+import org.openqa.selenium.remote.http.HttpHandler;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+
+/**
+ * Serves a {@link FakeAppiumBackend} over real HTTP, so the framework can be pointed at it through
+ * {@code appiumURL} exactly as at an Appium server.
+ * <p>
+ * Each command waits for a latency drawn from the distribution of its kind and fails with an
+ * {@code unknown error} at the configured rate, which lets a run with dozens of fake devices
+ * approximate real device timing. Session creation and deletion never fail, so injected errors
+ * land in test steps rather than in setup. A device can be made slower than the others with
+ * {@code fake.slowdown.<udid>}, which multiplies the latency of every command of its sessions.
+ */
+public class FakeAppiumServer {
+    /**
+     * The kinds of command that get their own latency distribution.
+     */
+    public enum Kind {
+        SESSION, FIND, ACTION, READ, SOURCE, SCREENSHOT, RECORDING, APP, OTHER
+    }
+
+    static {
+        // without TCP_NODELAY, delayed ACKs add about 50 ms to every command on loopback
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    final HttpServer server;
+    final ExecutorService executor;
+    final HttpHandler backend;
+    final Map<Kind, Latency> latencies = new HashMap<Kind, Latency>();
+    final double errorRate;
+    final Map<String, Double> slowdowns = new ConcurrentHashMap<String, Double>();
+    final Map<String, Double> sessionSlowdowns = new ConcurrentHashMap<String, Double>();
+    final AtomicLong commands = new AtomicLong();
+    final AtomicLong injectedErrors = new AtomicLong();
+    volatile boolean running;
+
+    /**
+     * A latency distribution in milliseconds.
+     * <p>
+     * Written as {@code fixed:<ms>}, {@code uniform:<min>:<max>} or
+     * {@code lognormal:<median>:<sigma>}; a bare number is a fixed latency.
+     */
+    public static class Latency {
+        final String type;
+        final double a;
+        final double b;
+
+        Latency(String type, double a, double b) {
+            this.type = type;
+            this.a = a;
+            this.b = b;
+        }
+
+        /**
+         * Parses a distribution.
+         *
+         * @param spec The distribution, e.g. "lognormal:80:0.5".
+         * @return The distribution.
+         */
+        public static Latency parse(String spec) {
+            String[] parts = spec.trim().split(":");
+            switch (parts[0]) {
+                case "fixed":
+                    return new Latency("fixed", Double.parseDouble(parts[1]), 0);
+                case "uniform":
+                    return new Latency("uniform", Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                case "lognormal":
+                    return new Latency("lognormal", Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                default:
+                    return new Latency("fixed", Double.parseDouble(parts[0]), 0);
+            }
+        }
+
+        /**
+         * Draws a latency.
+         *
+         * @return The latency in milliseconds.
+         */
+        long sample() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            switch (type) {
+                case "uniform":
+                    return (long) (a + random.nextDouble() * (b - a));
+                case "lognormal":
+                    return (long) (a * Math.exp(b * random.nextGaussian()));
+                default:
+                    return (long) a;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return type.equals("fixed") ? type + ":" + a : type + ":" + a + ":" + b;
+        }
+    }
+
+    /**
+     * Creates a server on a local port; call {@link #start()} to serve.
+     *
+     * @param backend    The backend answering the commands.
+     * @param latencies  The latency of each kind of command; kinds without one answer immediately.
+     * @param errorRate  The fraction of commands, between 0 and 1, answered with an error.
+     * @param port       The port, or 0 for a free one.
+     * @throws IOException If the port cannot be bound.
+     */
+    public FakeAppiumServer(HttpHandler backend, Map<Kind, Latency> latencies, double errorRate, int port) throws IOException {
+        this.backend = backend;
+        this.latencies.putAll(latencies);
+        this.errorRate = errorRate;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 256);
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "fake-appium-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    /**
+     * Reads the latency and error settings from system properties:
+     * {@code fake.latency.<kind>} (e.g. {@code -Dfake.latency.find=lognormal:120:0.5}),
+     * {@code fake.latency} for kinds without their own setting, {@code fake.errorRate} and
+     * {@code fake.slowdown.<udid>} (e.g. {@code -Dfake.slowdown.emulator-5556=3}).
+     *
+     * @param backend The backend answering the commands.
+     * @param port    The port, or 0 for a free one.
+     * @return The server, not yet started.
+     * @throws IOException If the port cannot be bound.
+     */
+    public static FakeAppiumServer fromSystemProperties(HttpHandler backend, int port) throws IOException {
+        Map<Kind, Latency> latencies = new HashMap<Kind, Latency>();
+        String fallback = System.getProperty("fake.latency");
+        for (Kind kind : Kind.values()) {
+            String spec = System.getProperty("fake.latency." + kind.name().toLowerCase(), fallback);
+            if (spec != null && !spec.isEmpty()) {
+                latencies.put(kind, Latency.parse(spec));
+            }
+        }
+        FakeAppiumServer server = new FakeAppiumServer(backend, latencies,
+                Double.parseDouble(System.getProperty("fake.errorRate", "0")), port);
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("fake.slowdown.")) {
+                server.slowdowns.put(name.substring("fake.slowdown.".length()), Double.parseDouble(System.getProperty(name)));
+            }
+        }
+        return server;
+    }
+
+    /**
+     * Starts serving.
+     *
+     * @return This server.
+     */
+    public FakeAppiumServer start() {
+        server.start();
+        running = true;
+        return this;
+    }
+
+    /**
+     * Stops serving, as if the server had crashed when called during a run.
+     */
+    public void stop() {
+        running = false;
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Checks whether the server is serving.
+     *
+     * @return True between {@link #start()} and {@link #stop()}.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Adapts the server for the {@link AppiumFarm}.
+     *
+     * @return The farm instance.
+     */
+    public AppiumFarm.Instance asFarmInstance() {
+        return new AppiumFarm.Instance() {
+            @Override
+            public void start() {
+                FakeAppiumServer.this.start();
+            }
+
+            @Override
+            public boolean isRunning() {
+                return FakeAppiumServer.this.isRunning();
+            }
+
+            @Override
+            public void stop() {
+                FakeAppiumServer.this.stop();
+            }
+
+            @Override
+            public URL getUrl() {
+                try {
+                    return FakeAppiumServer.this.getUrl();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Gets the URL to use as {@code appiumURL}.
+     *
+     * @return The URL.
+     * @throws IOException If the URL cannot be built.
+     */
+    public URL getUrl() throws IOException {
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+    }
+
+    /**
+     * Gets the number of commands answered so far.
+     *
+     * @return The command count.
+     */
+    public long getCommandCount() {
+        return commands.get();
+    }
+
+    /**
+     * Gets the number of commands answered with an injected error so far.
+     *
+     * @return The error count.
+     */
+    public long getInjectedErrorCount() {
+        return injectedErrors.get();
+    }
+
+    /**
+     * Gets the latency multiplier for a command: from the udid of a new session request, or from the
+     * session in the path of any other command.
+     *
+     * @param pathOrBody The command path, or the body of a new session request.
+     * @return The multiplier, 1 for devices without a slowdown.
+     */
+    double slowdownOf(String pathOrBody) {
+        if (slowdowns.isEmpty()) {
+            return 1;
+        }
+        if (!pathOrBody.startsWith("/")) {
+            JSONObject caps = new JSONObject(pathOrBody).optJSONObject("capabilities");
+            if (caps == null) {
+                return 1;
+            }
+            JSONArray candidates = caps.optJSONArray("firstMatch") == null ? new JSONArray() : caps.getJSONArray("firstMatch");
+            candidates.put(caps.optJSONObject("alwaysMatch") == null ? new JSONObject() : caps.getJSONObject("alwaysMatch"));
+            for (int i = 0; i < candidates.length(); i++) {
+                String udid = candidates.getJSONObject(i).optString("appium:udid", null);
+                if (udid != null) {
+                    return slowdowns.getOrDefault(udid, 1.0);
+                }
+            }
+            return 1;
+        }
+        Matcher m = FakeAppiumBackend.SESSION_PATH.matcher(pathOrBody);
+        return m.matches() ? sessionSlowdowns.getOrDefault(m.group(1), 1.0) : 1;
+    }
+
+    /**
+     * Answers one HTTP exchange.
+     *
+     * @param exchange The exchange.
+     * @throws IOException If the response cannot be sent.
+     */
+    void handle(HttpExchange exchange) throws IOException {
+        try {
+            HttpRequest req = new HttpRequest(HttpMethod.valueOf(exchange.getRequestMethod()),
+                    exchange.getRequestURI().toString());
+            for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+                for (String value : header.getValue()) {
+                    req.addHeader(header.getKey(), value);
+                }
+            }
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            req.setContent(Contents.bytes(body));
+
+            commands.incrementAndGet();
+            String path = exchange.getRequestURI().getPath();
+            Kind kind = kindOf(req.getMethod(), path);
+            boolean newSession = path.equals("/session");
+            double slowdown = newSession ? slowdownOf(new String(body, StandardCharsets.UTF_8)) : slowdownOf(path);
+            Latency latency = latencies.get(kind);
+            if (latency != null) {
+                long millis = (long) (latency.sample() * slowdown);
+                if (millis > 0) {
+                    Thread.sleep(millis);
+                }
+            }
+            HttpResponse res;
+            if (kind != Kind.SESSION && errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                injectedErrors.incrementAndGet();
+                res = FakeAppiumBackend.error(500, "unknown error", "injected by FakeAppiumServer");
+            } else {
+                res = backend.execute(req);
+            }
+            if (newSession && slowdown != 1 && res.getStatus() == 200) {
+                sessionSlowdowns.put(new JSONObject(Contents.string(res)).getJSONObject("value").getString("sessionId"),
+                        slowdown);
+            }
+
+            byte[] content = Contents.bytes(res.getContent());
+            for (String name : res.getHeaderNames()) {
+                for (String value : res.getHeaders(name)) {
+                    exchange.getResponseHeaders().add(name, value);
+                }
+            }
+            exchange.sendResponseHeaders(res.getStatus(), content.length == 0 ? -1 : content.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(content);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Classifies a command by its path.
+     *
+     * @param method The HTTP method.
+     * @param path   The request path.
+     * @return The kind of command.
+     */
+    static Kind kindOf(HttpMethod method, String path) {
+        if (path.equals("/session") || (path.matches("^/session/[^/]+/?$") && method == HttpMethod.DELETE)) {
+            return Kind.SESSION;
+        }
+        if (path.endsWith("/element") || path.endsWith("/elements")) {
+            return Kind.FIND;
+        }
+        if (path.endsWith("/click") || path.endsWith("/value") || path.endsWith("/clear") || path.endsWith("/actions")) {
+            return Kind.ACTION;
+        }
+        if (path.contains("/attribute/") || path.endsWith("/text") || path.endsWith("/displayed")
+                || path.endsWith("/enabled") || path.endsWith("/rect")) {
+            return Kind.READ;
+        }
+        if (path.endsWith("/source")) {
+            return Kind.SOURCE;
+        }
+        if (path.endsWith("/screenshot")) {
+            return Kind.SCREENSHOT;
+        }
+        if (path.contains("recording_screen")) {
+            return Kind.RECORDING;
+        }
+        if (path.endsWith("/execute/sync") || path.contains("/appium/device/")) {
+            return Kind.APP;
+        }
+        return Kind.OTHER;
+    }
+}
@@ -0,0 +1,73 @@
+package com.qa.fake;
+
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.ios.IOSDriver;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.http.ClientConfig;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpHandler;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+import org.openqa.selenium.remote.http.WebSocket;
+
+import java.net.URL;
+
+/**
+ * Creates real {@link AndroidDriver}/{@link IOSDriver} instances whose HTTP client talks to an
+ * in-process {@link HttpHandler} instead of the network, so the framework's driver code paths can
+ * be benchmarked without a device or an Appium server.
+ */
+public class FakeDrivers {
+
+    /**
+     * Creates a driver for the given platform backed by the handler.
+     *
+     * @param platformName Android or iOS.
+     * @param deviceName   The device name capability.
+     * @param backend      The handler answering the driver's commands.
+     * @return The driver, with a session already started.
+     * @throws Exception If the session cannot be created.
+     */
+    public static AppiumDriver create(String platformName, String deviceName, HttpHandler backend) throws Exception {
+        DesiredCapabilities caps = new DesiredCapabilities();
+        caps.setCapability("platformName", platformName);
+        caps.setCapability("appium:deviceName", deviceName);
+        caps.setCapability("appium:udid", deviceName);
+        URL url = new URL("http://fake-appium");
+        HttpClient.Factory factory = clientFactory(backend);
+        if (platformName.equalsIgnoreCase("iOS")) {
+            caps.setCapability("appium:automationName", "XCUITest");
+            return new IOSDriver(url, factory, caps);
+        }
+        caps.setCapability("appium:automationName", "UiAutomator2");
+        return new AndroidDriver(url, factory, caps);
+    }
+
+    /**
+     * Builds an HTTP client factory whose clients hand every request to the handler, through the
+     * filters of the client config like a real client.
+     *
+     * @param backend The handler.
+     * @return The factory.
+     */
+    public static HttpClient.Factory clientFactory(HttpHandler backend) {
+        return new HttpClient.Factory() {
+            @Override
+            public HttpClient createClient(ClientConfig config) {
+                HttpHandler handler = config.filter().andFinally(backend);
+                return new HttpClient() {
+                    @Override
+                    public WebSocket openSocket(HttpRequest request, WebSocket.Listener listener) {
+                        throw new UnsupportedOperationException("web sockets are not supported by the fake backend");
+                    }
+
+                    @Override
+                    public HttpResponse execute(HttpRequest req) {
+                        return handler.execute(req);
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,120 @@
+package com.qa.fake;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Stands in for the Android emulator and adb commands, so the
+ * {@link com.qa.devices.EmulatorManager} can be exercised on a host without an SDK or KVM.
+ * <p>
+ * {@code FakeEmulator emulator -avd <name> -port <port> ...} stays up like an emulator: it reports
+ * {@code sys.boot_completed=0}, then 1 after {@code fake.emulator.boot} ms (2000 by default), and
+ * exits once it is killed. {@code FakeEmulator adb -s emulator-<port> ...} answers
+ * {@code shell getprop sys.boot_completed}, {@code emu avd snapshot load}, which takes
+ * {@code fake.emulator.restore} ms (300 by default), and {@code emu kill}. The two share a state
+ * file per port under {@code fake.emulator.dir}. Use them with e.g.
+ * <pre>
+ * -DemulatorBinary="java -cp target/test-classes com.qa.fake.FakeEmulator emulator"
+ * -DadbBinary="java -cp target/test-classes com.qa.fake.FakeEmulator adb"
+ * </pre>
+ */
+public class FakeEmulator {
+
+    /**
+     * Runs the emulator or the adb command.
+     *
+     * @param args "emulator" or "adb", then the command's arguments.
+     * @throws Exception If the state file cannot be used.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("emulator")) {
+            emulator(args);
+        } else if (args.length > 2 && args[0].equals("adb") && args[1].equals("-s")) {
+            System.exit(adb(args));
+        } else {
+            System.err.println("usage: FakeEmulator emulator -port <port> ... | adb -s emulator-<port> <command>");
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Gets the state file of an emulator: its {@code sys.boot_completed} value while it runs.
+     *
+     * @param port The console port.
+     * @return The file.
+     */
+    static Path stateFile(String port) {
+        return Paths.get(System.getProperty("fake.emulator.dir",
+                Paths.get(System.getProperty("java.io.tmpdir"), "fake-emulators").toString()), port);
+    }
+
+    /**
+     * Boots and then idles until killed.
+     *
+     * @param args The emulator arguments.
+     * @throws Exception If the state file cannot be written.
+     */
+    static void emulator(String[] args) throws Exception {
+        String port = "5554";
+        for (int i = 1; i < args.length - 1; i++) {
+            if (args[i].equals("-port")) {
+                port = args[i + 1];
+            }
+        }
+        Path state = stateFile(port);
+        Files.createDirectories(state.getParent());
+        write(state, "0");
+        System.out.println("fake emulator on port " + port + " booting");
+        Thread.sleep(Long.getLong("fake.emulator.boot", 2000));
+        write(state, "1");
+        System.out.println("fake emulator on port " + port + " booted");
+        while (Files.exists(state)) {
+            Thread.sleep(200);
+        }
+        System.out.println("fake emulator on port " + port + " killed");
+    }
+
+    /**
+     * Answers one adb command.
+     *
+     * @param args "adb", "-s", the serial, then the command.
+     * @return The exit code: 0, or 1 for an unknown or offline device.
+     * @throws Exception If the state file cannot be used.
+     */
+    static int adb(String[] args) throws Exception {
+        Path state = stateFile(args[2].replace("emulator-", ""));
+        if (!Files.exists(state)) {
+            System.err.println("error: device '" + args[2] + "' not found");
+            return 1;
+        }
+        String command = String.join(" ", Arrays.copyOfRange(args, 3, args.length));
+        if (command.equals("shell getprop sys.boot_completed")) {
+            System.out.println(new String(Files.readAllBytes(state), StandardCharsets.UTF_8));
+        } else if (command.startsWith("emu avd snapshot load ")) {
+            Thread.sleep(Long.getLong("fake.emulator.restore", 300));
+            System.out.println("OK");
+        } else if (command.equals("emu kill")) {
+            Files.deleteIfExists(state);
+            System.out.println("OK: killing emulator, bye bye");
+        } else {
+            System.err.println("fake adb does not know: " + command);
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Replaces the content of the state file.
+     *
+     * @param state The file.
+     * @param value The new value.
+     * @throws IOException If it cannot be written.
+     */
+    static void write(Path state, String value) throws IOException {
+        Files.write(state, value.getBytes(StandardCharsets.UTF_8));
+    }
+}
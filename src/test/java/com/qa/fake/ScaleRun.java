@@ -0,0 +1,197 @@
+package com.qa.fake;
+
+import com.qa.listeners.TestListener;
+import com.qa.sessions.AppiumFarm;
+import com.qa.utils.TestUtils;
+import org.testng.ITestResult;
+import org.testng.TestListenerAdapter;
+import org.testng.TestNG;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Runs {@code LoginTests} and {@code ProductTests} against a {@link FakeAppiumServer} with a growing
+ * number of fake Android devices and reports how throughput scales.
+ * <p>
+ * For each device count it generates a suite with one pinned &lt;test&gt; per device, writes it
+ * to {@code fake-suites/}, and runs it in parallel against a fresh {@link AppiumFarm} of
+ * {@code -Dscale.servers} fake servers (1 by default). Throughput, speedup over the first count and parallel efficiency go to the console and to
+ * {@code fake-scaling.csv}; the first count whose efficiency drops below
+ * {@value #SCALING_LIMIT} is reported as where the framework stops scaling.
+ * <p>
+ * The scale profile runs it in {@code target/fake-run/}, so these files and everything the suites
+ * write to the working directory (videos, logs, screenshots, reports and statistics) stay there.
+ * It refuses to run in the project directory.
+ * <p>
+ * Run with {@code mvn -P scale test-compile exec:exec -Dscale.devices=1,2,4,8,16,32}; latency and
+ * errors are set with the system properties read by {@link FakeAppiumServer#fromSystemProperties}.
+ */
+public class ScaleRun {
+    static final double SCALING_LIMIT = 0.5;
+    static TestUtils utils = new TestUtils();
+
+    /**
+     * The outcome of one device count.
+     */
+    static class Result {
+        int devices;
+        long millis;
+        int tests;
+        int failures;
+        long commands;
+        long injectedErrors;
+
+        double throughput() {
+            return tests * 1000.0 / Math.max(1, millis);
+        }
+    }
+
+    /**
+     * Runs the scaling series.
+     *
+     * @param args The device counts, comma separated; defaults to 1,2,4,8,16.
+     * @throws Exception If a run cannot be set up or the report cannot be written.
+     */
+    public static void main(String[] args) throws Exception {
+        String counts = args.length > 0 ? args[0] : "1,2,4,8,16";
+        if (Files.exists(Paths.get("pom.xml"))) {
+            throw new IllegalStateException("run ScaleRun outside the project directory, as mvn -P scale exec:exec does,"
+                    + " so its run outputs stay out of the source tree");
+        }
+        System.setProperty("startAppiumServer", "false");
+        Path suites = Files.createDirectories(Paths.get("fake-suites"));
+
+        String[] series = counts.split(",");
+        // the first run pays for class loading and JIT; run it once unreported so it does not skew the speedups
+        run(Integer.parseInt(series[0].trim()), suites);
+        List<Result> results = new ArrayList<Result>();
+        for (String count : series) {
+            results.add(run(Integer.parseInt(count.trim()), suites));
+        }
+        report(results, Paths.get("fake-scaling.csv"));
+        System.exit(0);
+    }
+
+    /**
+     * Runs the suite once with the given number of fake devices.
+     *
+     * @param devices The device count.
+     * @param suites  The directory the generated suite is written to.
+     * @return The outcome.
+     * @throws Exception If the server cannot be started or the suite written.
+     */
+    static Result run(int devices, Path suites) throws Exception {
+        List<FakeAppiumServer> servers = new CopyOnWriteArrayList<FakeAppiumServer>();
+        AppiumFarm.start(Integer.getInteger("scale.servers", 1), null, (port, log) -> {
+            try {
+                FakeAppiumServer server = FakeAppiumServer.fromSystemProperties(new FakeAppiumBackend(), port);
+                servers.add(server);
+                return server.asFarmInstance();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        XmlSuite suite = suite(devices);
+        Files.write(suites.resolve("fake-" + devices + ".xml"), suite.toXml().getBytes(StandardCharsets.UTF_8));
+
+        TestListenerAdapter outcomes = new TestListenerAdapter();
+        TestNG testng = new TestNG();
+        testng.setUseDefaultListeners(false);
+        testng.setXmlSuites(Collections.singletonList(suite));
+        testng.addListener(outcomes);
+        long start = System.nanoTime();
+        try {
+            testng.run();
+        } finally {
+            AppiumFarm.stop();
+        }
+
+        Result result = new Result();
+        result.devices = devices;
+        result.millis = (System.nanoTime() - start) / 1_000_000;
+        result.failures = outcomes.getFailedTests().size() + outcomes.getSkippedTests().size();
+        result.tests = outcomes.getPassedTests().size() + result.failures;
+        for (FakeAppiumServer server : servers) {
+            result.commands += server.getCommandCount();
+            result.injectedErrors += server.getInjectedErrorCount();
+        }
+        return result;
+    }
+
+    /**
+     * Builds a suite with one &lt;test&gt; per fake device, all running in parallel.
+     *
+     * @param devices The device count.
+     * @return The suite.
+     */
+    static XmlSuite suite(int devices) {
+        XmlSuite suite = new XmlSuite();
+        suite.setName("fake-" + devices);
+        suite.setParallel(XmlSuite.ParallelMode.TESTS);
+        suite.setThreadCount(devices);
+        suite.addListener(TestListener.class.getName());
+        for (int i = 1; i <= devices; i++) {
+            XmlTest test = new XmlTest(suite);
+            test.setName("fake_" + i);
+            Map<String, String> params = new HashMap<String, String>();
+            params.put("emulator", "false");
+            params.put("platformName", "Android");
+            params.put("udid", "fake-" + i);
+            params.put("deviceName", "fake_" + i);
+            test.setParameters(params);
+            List<XmlClass> classes = new ArrayList<XmlClass>();
+            classes.add(new XmlClass("com.qa.tests.LoginTests"));
+            classes.add(new XmlClass("com.qa.tests.ProductTests"));
+            test.setXmlClasses(classes);
+        }
+        return suite;
+    }
+
+    /**
+     * Prints the scaling table and writes it as CSV.
+     *
+     * @param results The outcomes, in run order.
+     * @param csv     The CSV file to write.
+     * @throws Exception If the file cannot be written.
+     */
+    static void report(List<Result> results, Path csv) throws Exception {
+        Result base = results.get(0);
+        StringBuilder table = new StringBuilder(String.format("%8s %8s %8s %10s %9s %9s %10s %8s%n",
+                "devices", "tests", "failed", "wall ms", "tests/s", "speedup", "efficiency", "cmds"));
+        Integer limit = null;
+        try (Writer w = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            w.write("devices,tests,failed,wall_ms,tests_per_s,speedup,efficiency,commands,injected_errors\n");
+            for (Result r : results) {
+                double speedup = r.throughput() / Math.max(1e-9, base.throughput());
+                double efficiency = speedup / ((double) r.devices / base.devices);
+                if (limit == null && efficiency < SCALING_LIMIT) {
+                    limit = r.devices;
+                }
+                table.append(String.format("%8d %8d %8d %10d %9.2f %9.2f %10.2f %8d%n", r.devices, r.tests,
+                        r.failures, r.millis, r.throughput(), speedup, efficiency, r.commands));
+                w.write(r.devices + "," + r.tests + "," + r.failures + "," + r.millis + ","
+                        + String.format("%.3f,%.3f,%.3f", r.throughput(), speedup, efficiency) + ","
+                        + r.commands + "," + r.injectedErrors + "\n");
+            }
+        }
+        table.append(limit == null
+                ? "throughput scaled across all device counts"
+                : "scaling stops at " + limit + " devices (efficiency below " + SCALING_LIMIT + ")");
+        utils.log().info("fake device scaling:\n" + table);
+    }
+}
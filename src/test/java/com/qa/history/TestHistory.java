@@ -0,0 +1,257 @@
+package com.qa.history;
+
+import com.qa.utils.Settings;
+import com.qa.utils.TestUtils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class keeps how long each test method takes on each device model, across runs, in the
+ * history file {@code testHistoryFile} (test-history.csv by default), so the next run can start
+ * the longest methods first and, with {@code failFast=true}, the ones that failed last time.
+ * <p>
+ * A method's duration is a moving average that weighs the latest run by at least
+ * {@link #LATEST_WEIGHT}, so it follows the app getting faster or slower. A method is expected to
+ * take its average on a model it has run on, its average over the other models otherwise, and the
+ * average of all known methods if it has never run.
+ */
+public class TestHistory {
+    static final double LATEST_WEIGHT = 0.3;
+    static final String HEADER = "model,test,runs,avg_ms,last_failed";
+
+    static volatile Map<String, Entry> entries;
+    static TestUtils utils = new TestUtils();
+
+    /**
+     * The history of one test method on one device model.
+     */
+    static class Entry {
+        final String model;
+        final String test;
+        long runs;
+        double avgMillis;
+        boolean lastFailed;
+
+        Entry(String model, String test) {
+            this.model = model;
+            this.test = test;
+        }
+
+        /**
+         * Adds a run.
+         *
+         * @param millis The duration.
+         * @param failed Whether it failed.
+         */
+        synchronized void add(long millis, boolean failed) {
+            runs++;
+            double weight = Math.max(1.0 / runs, LATEST_WEIGHT);
+            avgMillis += (millis - avgMillis) * weight;
+            lastFailed = failed;
+        }
+    }
+
+    /**
+     * Gets the history file.
+     *
+     * @return The file.
+     */
+    static Path file() {
+        return Paths.get(Settings.get("testHistoryFile", "test-history.csv"));
+    }
+
+    /**
+     * Gets the entries by model and test, reading the history file on first use.
+     *
+     * @return The entries.
+     */
+    static Map<String, Entry> entries() {
+        if (entries == null) {
+            synchronized (TestHistory.class) {
+                if (entries == null) {
+                    entries = read(file());
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Parses the history file; a missing file is an empty history and bad lines are skipped.
+     *
+     * @param file The file.
+     * @return The entries.
+     */
+    static Map<String, Entry> read(Path file) {
+        Map<String, Entry> map = new ConcurrentHashMap<String, Entry>();
+        if (!Files.exists(file)) {
+            return map;
+        }
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                // the model may contain commas, the other columns cannot
+                String[] tail = line.split(",");
+                if (line.equals(HEADER) || tail.length < 5) {
+                    continue;
+                }
+                int n = tail.length;
+                String model = String.join(",", Arrays.copyOfRange(tail, 0, n - 4));
+                Entry entry = new Entry(model, tail[n - 4]);
+                try {
+                    entry.runs = Long.parseLong(tail[n - 3]);
+                    entry.avgMillis = Double.parseDouble(tail[n - 2]);
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                entry.lastFailed = Boolean.parseBoolean(tail[n - 1]);
+                map.put(key(model, entry.test), entry);
+            }
+        } catch (IOException e) {
+            utils.log().error("could not read the test history " + file + ", starting without it: " + e);
+        }
+        return map;
+    }
+
+    /**
+     * Builds the key of an entry.
+     *
+     * @param model The device model.
+     * @param test  The qualified test method name.
+     * @return The key.
+     */
+    static String key(String model, String test) {
+        return model + "|" + test;
+    }
+
+    /**
+     * Records a finished run of a test method.
+     *
+     * @param model  The device model it ran on.
+     * @param test   The qualified test method name.
+     * @param millis The duration.
+     * @param failed Whether it failed.
+     */
+    public static void record(String model, String test, long millis, boolean failed) {
+        entries().computeIfAbsent(key(model, test), k -> new Entry(model, test)).add(millis, failed);
+    }
+
+    /**
+     * Gets how long a test method is expected to take on a model.
+     *
+     * @param test  The qualified test method name.
+     * @param model The device model.
+     * @return The expected duration in milliseconds, 0 if nothing at all is known.
+     */
+    public static double expectedMillis(String test, String model) {
+        Entry entry = entries().get(key(model, test));
+        if (entry != null) {
+            return entry.avgMillis;
+        }
+        double sum = 0;
+        int n = 0;
+        for (Entry e : entries().values()) {
+            if (e.test.equals(test)) {
+                sum += e.avgMillis;
+                n++;
+            }
+        }
+        if (n > 0) {
+            return sum / n;
+        }
+        for (Entry e : entries().values()) {
+            sum += e.avgMillis;
+            n++;
+        }
+        return n == 0 ? 0 : sum / n;
+    }
+
+    /**
+     * Gets how long a test method is expected to take on a set of devices, as the mean over
+     * their models.
+     *
+     * @param test   The qualified test method name.
+     * @param models The models of the devices, one per device.
+     * @return The expected duration in milliseconds.
+     */
+    public static double expectedMillis(String test, Collection<String> models) {
+        double sum = 0;
+        for (String model : models) {
+            sum += expectedMillis(test, model);
+        }
+        return models.isEmpty() ? 0 : sum / models.size();
+    }
+
+    /**
+     * Checks whether a test method failed in its latest run on any of the models.
+     *
+     * @param test   The qualified test method name.
+     * @param models The device models.
+     * @return True if it failed recently.
+     */
+    public static boolean failedRecently(String test, Collection<String> models) {
+        for (String model : models) {
+            Entry entry = entries().get(key(model, test));
+            if (entry != null && entry.lastFailed) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Predicts the makespan of running test methods in the given order on devices that each take
+     * the next method when they become free, as the device pool does.
+     *
+     * @param tests  The qualified test method names, in queue order.
+     * @param models The models of the devices, one per device.
+     * @return The predicted makespan in milliseconds.
+     */
+    public static long predictMakespan(List<String> tests, List<String> models) {
+        // devices by the time they become free
+        PriorityQueue<double[]> free = new PriorityQueue<double[]>((a, b) -> Double.compare(a[0], b[0]));
+        for (int i = 0; i < models.size(); i++) {
+            free.add(new double[]{0, i});
+        }
+        double makespan = 0;
+        for (String test : tests) {
+            double[] device = free.poll();
+            device[0] += expectedMillis(test, models.get((int) device[1]));
+            makespan = Math.max(makespan, device[0]);
+            free.add(device);
+        }
+        return Math.round(makespan);
+    }
+
+    /**
+     * Writes the history file, including entries of models that did not run this time.
+     */
+    public static void save() {
+        if (entries == null) {
+            return;
+        }
+        Path file = file();
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write(HEADER + "\n");
+            for (Entry e : new TreeMap<String, Entry>(entries).values()) {
+                synchronized (e) {
+                    w.write(e.model + "," + e.test + "," + e.runs + "," + Math.round(e.avgMillis) + ","
+                            + e.lastFailed + "\n");
+                }
+            }
+        } catch (IOException e) {
+            utils.log().error("could not write the test history " + file, e);
+        }
+    }
+}
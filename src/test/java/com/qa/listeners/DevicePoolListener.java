@@ -0,0 +1,205 @@
+package com.qa.listeners;
+
+import com.qa.data.Device;
+import com.qa.devices.DevicePool;
+import com.qa.devices.EmulatorManager;
+import com.qa.devices.RunOn;
+import com.qa.history.TestHistory;
+import com.qa.utils.Settings;
+import com.qa.utils.TestUtils;
+import org.testng.IAlterSuiteListener;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ITestContext;
+import org.testng.annotations.Test;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class prepares the {@code <test>}s that draw their devices from the {@link DevicePool}
+ * and keeps platform-specific tests on their platform.
+ * <p>
+ * A {@code <test>} with the parameter {@code devicePool=true} is switched to
+ * {@code parallel="methods"} with one thread per pooled device of its platform, so its methods
+ * form a queue that idle devices pull from. Methods whose {@link RunOn} excludes the platform
+ * of a {@code <test>} are removed from it. When the {@link EmulatorManager} manages the emulators,
+ * it is told how many Android methods are queued before the thread pools are sized, so the
+ * emulator instances it plans are part of the pool.
+ * <p>
+ * With {@code testOrder=history} (the default), the methods of each {@code <test>} are queued
+ * longest first by their {@link TestHistory}, and with {@code failFast=true} the methods that
+ * failed in their last run go first. Since the pool hands the next method to whichever device
+ * becomes free, this is longest-processing-time-first scheduling across the devices.
+ */
+public class DevicePoolListener implements IAlterSuiteListener, IMethodInterceptor {
+    TestUtils utils = new TestUtils();
+
+    /**
+     * Sizes the thread pool of every device pool {@code <test>} to its platform's devices, and
+     * lets every {@code <test>} run in history order.
+     *
+     * @param suites The suites about to run.
+     */
+    @Override
+    public void alter(List<XmlSuite> suites) {
+        if (EmulatorManager.isEnabled()) {
+            int queued = 0;
+            for (XmlSuite suite : suites) {
+                for (XmlTest test : suite.getTests()) {
+                    if (Boolean.parseBoolean(test.getParameter("devicePool"))
+                            && "Android".equalsIgnoreCase(test.getParameter("platformName"))) {
+                        queued += countMethods(test, "Android");
+                    }
+                }
+            }
+            if (queued > 0) {
+                EmulatorManager.plan(queued);
+            }
+        }
+        boolean history = Settings.get("testOrder", "history").equalsIgnoreCase("history");
+        for (XmlSuite suite : suites) {
+            for (XmlTest test : suite.getTests()) {
+                if (history) {
+                    // run in the order intercept() returns, not the order of testng.xml
+                    test.setPreserveOrder(false);
+                }
+                if (!Boolean.parseBoolean(test.getParameter("devicePool"))) {
+                    continue;
+                }
+                String platformName = test.getParameter("platformName");
+                int devices = DevicePool.size(platformName);
+                if (devices == 0) {
+                    throw new IllegalStateException("test " + test.getName() + " draws from the device pool, but it has no "
+                            + platformName + " device");
+                }
+                test.setParallel(XmlSuite.ParallelMode.METHODS);
+                test.setThreadCount(devices);
+                utils.log().info("test " + test.getName() + " runs its methods on " + devices + " pooled "
+                        + platformName + " device(s)");
+            }
+        }
+    }
+
+    /**
+     * Counts the test methods of a {@code <test>} that run on a platform.
+     *
+     * @param test         The test.
+     * @param platformName The platform.
+     * @return The number of methods.
+     */
+    static int countMethods(XmlTest test, String platformName) {
+        int count = 0;
+        for (XmlClass xmlClass : test.getXmlClasses()) {
+            Class<?> c = xmlClass.getSupportClass();
+            for (Method m : c.getMethods()) {
+                if (m.isAnnotationPresent(Test.class) && runsOn(m, c, platformName)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks the {@link RunOn} of a method, or else of its class, against a platform.
+     *
+     * @param m            The method.
+     * @param c            The class.
+     * @param platformName The platform.
+     * @return True if the method may run on the platform.
+     */
+    static boolean runsOn(Method m, Class<?> c, String platformName) {
+        RunOn runOn = m.getAnnotation(RunOn.class);
+        if (runOn == null) {
+            runOn = c.getAnnotation(RunOn.class);
+        }
+        return runOn == null || Arrays.stream(runOn.value()).anyMatch(platformName::equalsIgnoreCase);
+    }
+
+    /**
+     * Removes the methods that must not run on the platform of the current {@code <test>}.
+     *
+     * @param methods The methods TestNG is about to run.
+     * @param context The test context.
+     * @return The methods to run.
+     */
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        String platformName = context.getCurrentXmlTest().getParameter("platformName");
+        if (platformName == null) {
+            return methods;
+        }
+        List<IMethodInstance> kept = new ArrayList<IMethodInstance>(methods.size());
+        for (IMethodInstance instance : methods) {
+            Method m = instance.getMethod().getConstructorOrMethod().getMethod();
+            if (runsOn(m, (Class<?>) instance.getMethod().getRealClass(), platformName)) {
+                kept.add(instance);
+            }
+        }
+        if (Settings.get("testOrder", "history").equalsIgnoreCase("history")) {
+            return order(kept, context.getCurrentXmlTest(), Boolean.parseBoolean(Settings.get("failFast", "false")));
+        }
+        return kept;
+    }
+
+    /**
+     * Orders the methods of a {@code <test>} from its {@link TestHistory}: longest expected duration
+     * first, so the devices of a pool finish close together instead of one device running a long
+     * method at the end, and with {@code failFast} the methods that failed last time before all others.
+     *
+     * @param methods  The methods.
+     * @param test     The test.
+     * @param failFast Whether recently failed methods go first.
+     * @return The methods in the order to run them.
+     */
+    List<IMethodInstance> order(List<IMethodInstance> methods, XmlTest test, boolean failFast) {
+        List<String> models = new ArrayList<String>();
+        if (Boolean.parseBoolean(test.getParameter("devicePool"))) {
+            for (Device device : DevicePool.devices(test.getParameter("platformName"))) {
+                models.add(EmulatorManager.modelOf(device.deviceName()));
+            }
+        } else if (test.getParameter("deviceName") != null) {
+            models.add(test.getParameter("deviceName"));
+        }
+        if (models.isEmpty()) {
+            return methods;
+        }
+        Map<IMethodInstance, Double> expected = new HashMap<IMethodInstance, Double>();
+        Map<IMethodInstance, Boolean> failed = new HashMap<IMethodInstance, Boolean>();
+        for (IMethodInstance instance : methods) {
+            String name = instance.getMethod().getQualifiedName();
+            expected.put(instance, TestHistory.expectedMillis(name, models));
+            failed.put(instance, failFast && TestHistory.failedRecently(name, models));
+        }
+        List<IMethodInstance> ordered = new ArrayList<IMethodInstance>(methods);
+        ordered.sort(Comparator.<IMethodInstance, Boolean>comparing(failed::get).reversed()
+                .thenComparing(Comparator.<IMethodInstance, Double>comparing(expected::get).reversed()));
+        utils.log().info("test " + test.getName() + ": predicted makespan " + makespan(ordered, models)
+                + " ms in history order, " + makespan(methods, models) + " ms in declaration order");
+        return ordered;
+    }
+
+    /**
+     * Predicts the makespan of the methods in an order.
+     *
+     * @param methods The methods.
+     * @param models  The device models.
+     * @return The makespan in milliseconds.
+     */
+    static long makespan(List<IMethodInstance> methods, List<String> models) {
+        List<String> names = new ArrayList<String>();
+        for (IMethodInstance instance : methods) {
+            names.add(instance.getMethod().getQualifiedName());
+        }
+        return TestHistory.predictMakespan(names, models);
+    }
+}
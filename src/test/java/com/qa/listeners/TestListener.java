@@ -3,36 +3,41 @@ package com.qa.listeners;
 import com.aventstack.extentreports.MediaEntityBuilder;
 import com.aventstack.extentreports.Status;
 import com.qa.BaseTest;
+import com.qa.artifacts.Screenshots;
+import com.qa.devices.EmulatorManager;
+import com.qa.history.TestHistory;
+import com.qa.metrics.CommandMetrics;
 import com.qa.reports.ExtentReport;
+import com.qa.utils.LogSink;
+import com.qa.utils.StepLog;
 import com.qa.utils.TestUtils;
-import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.io.FileUtils;
-import org.openqa.selenium.OutputType;
 import org.testng.ITestContext;
 import org.testng.ITestListener;
 import org.testng.ITestResult;
 import org.testng.Reporter;
 
 import java.io.File;
-import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class implements the ITestListener interface to listen for test events and
  * perform actions like logging results, capturing screenshots, and reporting.
  */
 public class TestListener implements ITestListener {
+	static Map<String, Set<String>> finishedTests = new ConcurrentHashMap<String, Set<String>>();
 	TestUtils utils = new TestUtils();
 
 	/**
 	 * Invoked each time a test fails.
 	 * <p>
-	 * This method logs the exception stack trace, captures a screenshot of the failed test,
-	 * and adds the screenshot and failure information to the Extent Report.
+	 * This method logs the exception stack trace, writes the test's recent {@link StepLog} steps
+	 * to the log and the report, records the failure and duration in the {@link TestHistory}, captures a single screenshot of the failed test,
+	 * and adds it to the Extent Report by reference, together with the failure information.
+	 * The image is written off the test thread by {@link Screenshots}.
 	 *
 	 * @param result An ITestResult object representing the failed test.
 	 */
@@ -43,80 +48,125 @@ public class TestListener implements ITestListener {
 			  result.getThrowable().printStackTrace(pw);
 			  utils.log().error(sw.toString());
 		}
+		writeSteps();
 
 		BaseTest base = new BaseTest();
-		File file = base.getDriver().getScreenshotAs(OutputType.FILE);
+		recordDuration(result, base, true);
+
+		String imageDir = "Screenshots" + File.separator + base.getPlatform()
+		+ "_" + base.getDeviceName() + File.separator + base.getDateTime();
+		boolean thumbnail = Boolean.parseBoolean(base.getProps().getProperty("screenshotThumbnails"));
 
-		byte[] encoded = null;
 		try {
-			encoded = Base64.encodeBase64(FileUtils.readFileToByteArray(file));
-		} catch (IOException e1) {
-			// TODO Auto-generated catch block
-			e1.printStackTrace();
+			Screenshots.Shot shot = Screenshots.capture(base.getDriver(), imageDir, thumbnail);
+			String root = System.getProperty("user.dir") + File.separator;
+			String preview = root + (shot.thumbnailPath != null ? shot.thumbnailPath : shot.imagePath);
+			Reporter.log("<a href='" + root + shot.imagePath + "'> <img src='" + preview + "' height='400' width='400'/> </a>");
+			if (shot.thumbnailPath != null) {
+				ExtentReport.getTest().fail("Test Failed <br/><a href='" + shot.imagePath + "'><img src='"
+						+ shot.thumbnailPath + "'/></a>");
+			} else {
+				ExtentReport.getTest().fail("Test Failed",
+						MediaEntityBuilder.createScreenCaptureFromPath(shot.imagePath).build());
+			}
+		} catch (Exception e) {
+			utils.log().error("error capturing failure screenshot: " + e.toString());
+			ExtentReport.getTest().fail("Test Failed");
 		}
+		ExtentReport.getTest().fail(result.getThrowable());
+		ExtentReport.endTest(result);
+		flushLog();
+	}
 
-		Map <String, String> params = new HashMap<String, String>();
-		params = result.getTestContext().getCurrentXmlTest().getAllParameters();
-
-		String imagePath = "Screenshots" + File.separator + params.get("platformName")
-		+ "_" + params.get("deviceName") + File.separator + base.getDateTime() + File.separator
-		+ result.getTestClass().getRealClass().getSimpleName() + File.separator + result.getName() + ".png";
+	/**
+	 * Writes the steps the current thread recorded since its previous test ended to the log and
+	 * to the report, and forgets them.
+	 */
+	void writeSteps() {
+		for (String step : StepLog.drain()) {
+			utils.log().info(step);
+			ExtentReport.getTest().log(Status.INFO, step);
+		}
+	}
 
-		String completeImagePath = System.getProperty("user.dir") + File.separator + imagePath;
+	/**
+	 * Flushes the log file of the current thread's device, if it has one.
+	 */
+	void flushLog() {
+		LogSink sink = utils.logSink();
+		if (sink != null) {
+			sink.flush();
+		}
+	}
 
-		try {
-			FileUtils.copyFile(file, new File(imagePath));
-			Reporter.log("This is the sample screenshot");
-			Reporter.log("<a href='"+ completeImagePath + "'> <img src='"+ completeImagePath + "' height='400' width='400'/> </a>");
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+	/**
+	 * Records how long a test took on the model of its device, for ordering the next run.
+	 *
+	 * @param result The test result.
+	 * @param base   The test's thread state.
+	 * @param failed Whether the test failed.
+	 */
+	void recordDuration(ITestResult result, BaseTest base, boolean failed) {
+		if (base.getDeviceName() != null) {
+			TestHistory.record(EmulatorManager.modelOf(base.getDeviceName()), result.getMethod().getQualifiedName(),
+					result.getEndMillis() - result.getStartMillis(), failed);
 		}
-		ExtentReport.getTest().fail("Test Failed",
-				MediaEntityBuilder.createScreenCaptureFromPath(completeImagePath).build());
-		ExtentReport.getTest().fail("Test Failed",
-				MediaEntityBuilder.createScreenCaptureFromBase64String(new String(encoded, StandardCharsets.US_ASCII)).build());
-		ExtentReport.getTest().fail(result.getThrowable());
 	}
 
 	/**
 	 * Invoked each time a test starts.
 	 * <p>
-	 * This method starts a new test in the Extent Report and assigns categories and author information.
+	 * This method starts a new test in the Extent Report, assigns categories and author information,
+	 * and records how long the app reset before the test took.
 	 *
 	 * @param result An ITestResult object representing the started test.
 	 */
 	@Override
 	public void onTestStart(ITestResult result) {
 		BaseTest base = new BaseTest();
+		CommandMetrics.startTest(result.getTestClass().getRealClass().getSimpleName() + "." + result.getName());
 		ExtentReport.startTest(result.getName(), result.getMethod().getDescription())
 		.assignCategory(base.getPlatform() + "_" + base.getDeviceName())
 		.assignAuthor("achhatre");
+		if (base.getLastReset() != null) {
+			ExtentReport.getTest().info(base.getLastReset());
+			base.setLastReset(null);
+		}
 	}
 
 	/**
 	 * Invoked each time a test succeeds.
 	 * <p>
-	 * This method logs a success message to the Extent Report.
+	 * This method records the test's duration in the {@link TestHistory}, drops its
+	 * {@link StepLog} steps unwritten, logs a success message to the Extent Report, ends the
+	 * report test and flushes the device log.
 	 *
 	 * @param result An ITestResult object representing the successful test.
 	 */
 	@Override
 	public void onTestSuccess(ITestResult result) {
+		recordDuration(result, new BaseTest(), false);
+		StepLog.clear();
 		ExtentReport.getTest().log(Status.PASS, "Test Passed");
+		ExtentReport.endTest(result);
+		flushLog();
 
 	}
 
 	/**
 	 * Invoked each time a test is skipped.
 	 * <p>
-	 * This method logs a skip message to the Extent Report.
+	 * This method writes the test's recent {@link StepLog} steps to the log and the report, logs a
+	 * skip message to the Extent Report, ends the report test and flushes the device log.
 	 *
 	 * @param result An ITestResult object representing the skipped test.
 	 */
 	@Override
 	public void onTestSkipped(ITestResult result) {
+		writeSteps();
 		ExtentReport.getTest().log(Status.SKIP, "Test Skipped");
+		ExtentReport.endTest(result);
+		flushLog();
 
 	}
 
@@ -145,18 +195,22 @@ public class TestListener implements ITestListener {
 	}
 
 	/**
-	 * Invoked after all the test methods belonging to the classes inside
-	 the &lt;test&gt; tag
+	 * Invoked after all the test methods belonging to the classes inside the &lt;test&gt; tag
 	 * have run and all their Configuration methods have been called.
 	 * <p>
-	 * This  
-	 method flushes the Extent Report, ensuring that all results are written to the report file.
+	 * Once every &lt;test&gt; of the suite has finished, this method renders the Extent Report,
+	 * so the HTML is written once per suite rather than once per &lt;test&gt;.
 	 *
 	 * @param context The test context.
 	 */
 	@Override
 	public void onFinish(ITestContext context) {
-		ExtentReport.getReporter().flush();
+		Set<String> finished = finishedTests.computeIfAbsent(context.getSuite().getName(),
+				k -> ConcurrentHashMap.newKeySet());
+		finished.add(context.getName());
+		if (finished.size() >= context.getSuite().getXmlSuite().getTests().size()) {
+			ExtentReport.flush();
+		}
 	}
 
 }
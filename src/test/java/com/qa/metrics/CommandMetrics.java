@@ -0,0 +1,191 @@
+package com.qa.metrics;
+
+import org.json.JSONObject;
+import org.openqa.selenium.remote.http.Contents;
+import org.openqa.selenium.remote.http.Filter;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Times every HTTP command a driver sends to Appium, per device and per test.
+ * <p>
+ * Drivers get the timing through {@link #filter(String)} on their client config, so it covers
+ * every command, including the ones java-client sends as {@code mobile:} scripts. Commands are
+ * named by method and path with session and element ids removed, plus the script name for
+ * {@code /execute/sync}. The current test is tracked per thread between {@link #startTest(String)}
+ * and {@link #finishTest()}.
+ */
+public class CommandMetrics {
+    static final Pattern SESSION = Pattern.compile("^/session/[^/]+");
+    static final Pattern ELEMENT = Pattern.compile("/element/[^/]+");
+
+    static final Map<String, Map<String, LatencyHistogram>> devices = new ConcurrentHashMap<String, Map<String, LatencyHistogram>>();
+    static final Map<String, Map<String, LatencyHistogram>> tests = new ConcurrentHashMap<String, Map<String, LatencyHistogram>>();
+    static final ThreadLocal<Map<String, LatencyHistogram>> currentTest = new ThreadLocal<Map<String, LatencyHistogram>>();
+    static final ThreadLocal<String> currentTestName = new ThreadLocal<String>();
+
+    /**
+     * Builds a client filter timing the commands of one device's driver.
+     *
+     * @param device The device name the timings are recorded under.
+     * @return The filter.
+     */
+    public static Filter filter(String device) {
+        Map<String, LatencyHistogram> byCommand = devices.computeIfAbsent(device,
+                k -> new ConcurrentHashMap<String, LatencyHistogram>());
+        return next -> req -> {
+            long start = System.nanoTime();
+            try {
+                return next.execute(req);
+            } finally {
+                long micros = (System.nanoTime() - start) / 1000;
+                String command = commandName(req);
+                byCommand.computeIfAbsent(command, k -> new LatencyHistogram()).record(micros);
+                Map<String, LatencyHistogram> test = currentTest.get();
+                if (test != null) {
+                    test.computeIfAbsent(command, k -> new LatencyHistogram()).record(micros);
+                }
+            }
+        };
+    }
+
+    /**
+     * Starts attributing this thread's commands to a test.
+     *
+     * @param name The test name.
+     */
+    public static void startTest(String name) {
+        currentTestName.set(name);
+        currentTest.set(new TreeMap<String, LatencyHistogram>());
+    }
+
+    /**
+     * Stops attributing this thread's commands to its test and keeps the test's timings for the
+     * suite summary. Repeated runs of the same test are merged.
+     *
+     * @return The test's timings by command, empty if no test was started.
+     */
+    public static Map<String, LatencyHistogram> finishTest() {
+        Map<String, LatencyHistogram> test = currentTest.get();
+        String name = currentTestName.get();
+        currentTest.remove();
+        currentTestName.remove();
+        if (test == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, LatencyHistogram> kept = tests.computeIfAbsent(name, k -> new ConcurrentHashMap<String, LatencyHistogram>());
+        for (Map.Entry<String, LatencyHistogram> entry : test.entrySet()) {
+            kept.computeIfAbsent(entry.getKey(), k -> new LatencyHistogram()).add(entry.getValue());
+        }
+        return test;
+    }
+
+    /**
+     * Names the command of a request.
+     *
+     * @param req The request.
+     * @return The method and normalized path, e.g. "POST /element/{id}/click".
+     */
+    static String commandName(HttpRequest req) {
+        String path = req.getUri();
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        if (path.equals("/session")) {
+            return req.getMethod() + " /session";
+        }
+        path = ELEMENT.matcher(SESSION.matcher(path).replaceFirst("")).replaceAll("/element/{id}");
+        if (path.isEmpty()) {
+            return req.getMethod() == HttpMethod.DELETE ? "DELETE /session" : req.getMethod() + " /session/{id}";
+        }
+        if (path.startsWith("/execute/")) {
+            try {
+                String script = new JSONObject(Contents.string(req)).optString("script");
+                if (!script.isEmpty()) {
+                    return req.getMethod() + " " + path + " " + script;
+                }
+            } catch (RuntimeException e) {
+                // no readable body, fall through to the path
+            }
+        }
+        return req.getMethod() + " " + path;
+    }
+
+    /**
+     * Writes the per-device and per-test timings as JSON and CSV.
+     *
+     * @param json The JSON file to write.
+     * @param csv  The CSV file to write.
+     * @throws IOException If a file cannot be written.
+     */
+    public static void write(Path json, Path csv) throws IOException {
+        JSONObject summary = new JSONObject()
+                .put("devices", toJson(devices))
+                .put("tests", toJson(tests));
+        Files.write(json, summary.toString(2).getBytes(StandardCharsets.UTF_8));
+        try (Writer w = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            w.write("scope,name,command,count,mean_us,p50_us,p90_us,p99_us,max_us\n");
+            writeRows(w, "device", devices);
+            writeRows(w, "test", tests);
+        }
+    }
+
+    /**
+     * Converts timings grouped by device or test to JSON.
+     *
+     * @param groups The timings.
+     * @return The JSON object.
+     */
+    static JSONObject toJson(Map<String, Map<String, LatencyHistogram>> groups) {
+        JSONObject result = new JSONObject();
+        for (Map.Entry<String, Map<String, LatencyHistogram>> group : new TreeMap<String, Map<String, LatencyHistogram>>(groups).entrySet()) {
+            JSONObject commands = new JSONObject();
+            for (Map.Entry<String, LatencyHistogram> command : group.getValue().entrySet()) {
+                commands.put(command.getKey(), command.getValue().toJson());
+            }
+            result.put(group.getKey(), commands);
+        }
+        return result;
+    }
+
+    /**
+     * Writes timings grouped by device or test as CSV rows.
+     *
+     * @param w      The writer.
+     * @param scope  "device" or "test".
+     * @param groups The timings.
+     * @throws IOException If writing fails.
+     */
+    static void writeRows(Writer w, String scope, Map<String, Map<String, LatencyHistogram>> groups) throws IOException {
+        for (Map.Entry<String, Map<String, LatencyHistogram>> group : new TreeMap<String, Map<String, LatencyHistogram>>(groups).entrySet()) {
+            for (Map.Entry<String, LatencyHistogram> command : new TreeMap<String, LatencyHistogram>(group.getValue()).entrySet()) {
+                LatencyHistogram h = command.getValue();
+                w.write(scope + "," + csvField(group.getKey()) + "," + csvField(command.getKey()) + "," + h.count() + ","
+                        + h.mean() + "," + h.percentile(50) + "," + h.percentile(90) + "," + h.percentile(99) + ","
+                        + h.max() + "\n");
+            }
+        }
+    }
+
+    /**
+     * Quotes a CSV field when it contains a separator or quote.
+     *
+     * @param value The value.
+     * @return The field.
+     */
+    static String csvField(String value) {
+        return value.contains(",") || value.contains("\"") ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+    }
+}
@@ -0,0 +1,159 @@
+package com.qa.metrics;
+
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, lock-free latency histogram in microseconds.
+ * <p>
+ * Values below 16 get a bucket each; above that every power of two is split into 16 linear
+ * sub-buckets, as in HdrHistogram with one significant digit, so percentiles are exact to about 6%
+ * from microseconds up to days. Recording is one array increment and three atomic updates.
+ */
+public class LatencyHistogram {
+    static final int SUB_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BITS;
+    static final int MAX_MAGNITUDE = 40;
+    static final long MAX_VALUE = (1L << (MAX_MAGNITUDE + 1)) - 1;
+
+    final AtomicLongArray counts = new AtomicLongArray(SUB_BUCKETS + (MAX_MAGNITUDE - SUB_BITS + 1) * SUB_BUCKETS);
+    final AtomicLong count = new AtomicLong();
+    final AtomicLong sum = new AtomicLong();
+    final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one value.
+     *
+     * @param micros The latency in microseconds.
+     */
+    public void record(long micros) {
+        long v = Math.max(0, Math.min(MAX_VALUE, micros));
+        counts.incrementAndGet(index(v));
+        count.incrementAndGet();
+        sum.addAndGet(v);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    /**
+     * Adds all values of another histogram to this one.
+     *
+     * @param other The other histogram.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length(); i++) {
+            long n = other.counts.get(i);
+            if (n > 0) {
+                counts.addAndGet(i, n);
+            }
+        }
+        count.addAndGet(other.count.get());
+        sum.addAndGet(other.sum.get());
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    /**
+     * Gets the number of recorded values.
+     *
+     * @return The count.
+     */
+    public long count() {
+        return count.get();
+    }
+
+    /**
+     * Gets the sum of the recorded values.
+     *
+     * @return The total in microseconds.
+     */
+    public long total() {
+        return sum.get();
+    }
+
+    /**
+     * Gets the mean of the recorded values.
+     *
+     * @return The mean in microseconds, or 0 when empty.
+     */
+    public long mean() {
+        long n = count.get();
+        return n == 0 ? 0 : sum.get() / n;
+    }
+
+    /**
+     * Gets the largest recorded value.
+     *
+     * @return The maximum in microseconds.
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Gets a percentile of the recorded values, as the upper bound of the bucket it falls in.
+     *
+     * @param p The percentile, between 0 and 100.
+     * @return The value in microseconds, or 0 when empty.
+     */
+    public long percentile(double p) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(p / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Summarizes the histogram as JSON.
+     *
+     * @return The count, mean, p50, p90, p99 and max, in microseconds.
+     */
+    public JSONObject toJson() {
+        return new JSONObject()
+                .put("count", count())
+                .put("meanMicros", mean())
+                .put("p50Micros", percentile(50))
+                .put("p90Micros", percentile(90))
+                .put("p99Micros", percentile(99))
+                .put("maxMicros", max());
+    }
+
+    /**
+     * Gets the bucket of a value.
+     *
+     * @param v The value, between 0 and {@link #MAX_VALUE}.
+     * @return The bucket index.
+     */
+    static int index(long v) {
+        if (v < SUB_BUCKETS) {
+            return (int) v;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(v);
+        int shift = magnitude - SUB_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) ((v >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Gets the largest value that falls in a bucket.
+     *
+     * @param index The bucket index.
+     * @return The value.
+     */
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        long sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1) << shift) - 1;
+    }
+}
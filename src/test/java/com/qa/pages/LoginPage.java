@@ -1,40 +1,43 @@
 package com.qa.pages;
 
 import com.qa.BaseTest;
+import com.qa.binding.CacheElements;
+import com.qa.reset.LoginRoute;
 import com.qa.utils.TestUtils;
 import io.appium.java_client.pagefactory.AndroidFindBy;
-import io.appium.java_client.pagefactory.AppiumFieldDecorator;
 import io.appium.java_client.pagefactory.iOSXCUITFindBy;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.PageFactory;
 
 /**
  * This class represents the Login Page of the application and provides methods to interact
  * with the elements on the page.
  */
+@CacheElements
 public class LoginPage extends BaseTest {
     TestUtils utils = new TestUtils();
     @AndroidFindBy(accessibility = "test-Username")
     @iOSXCUITFindBy(id = "test-Username")
-    private WebElement usernameTxtFld;
+    WebElement usernameTxtFld;
 
     @AndroidFindBy(accessibility = "test-Password")
     @iOSXCUITFindBy(id = "test-Password")
-    private WebElement passwordTxtFld;
+    WebElement passwordTxtFld;
 
     @AndroidFindBy(accessibility = "test-LOGIN")
     @iOSXCUITFindBy(id = "test-LOGIN")
-    private WebElement loginBtn;
+    WebElement loginBtn;
 
     @AndroidFindBy(xpath = "//android.view.ViewGroup[@content-desc=\"test-Error message\"]/android.widget.TextView")
     @iOSXCUITFindBy(xpath = "//XCUIElementTypeOther[@name=\"test-Error message\"]/child::XCUIElementTypeStaticText")
-    private WebElement errTxt;
+    WebElement errTxt;
+
+    long loginStart;
 
     /**
-     * Initializes the Page Factory with the Appium driver.
+     * Binds the page's elements through the generated LoginPage_Binder.
      */
     public LoginPage() {
-        PageFactory.initElements(new AppiumFieldDecorator(getDriver()), this);
+        LoginPage_Binder.bind(this);
     }
 
     /**
@@ -44,6 +47,7 @@ public class LoginPage extends BaseTest {
      * @return The LoginPage instance.
      */
     public LoginPage enterUserName(String username) {
+        loginStart = System.nanoTime();
         clear(usernameTxtFld);
         sendKeys(usernameTxtFld, username, "login with " + username);
         return this;
@@ -62,12 +66,17 @@ public class LoginPage extends BaseTest {
     }
 
     /**
-     * Clicks the login button.
+     * Clicks the login button. The time from entering the username to here is recorded as the
+     * cost of a UI login, which the {@link LoginRoute} shortcuts are compared to.
      *
      * @return The ProductsPage instance.
      */
     public ProductsPage pressLoginBtn() {
         click(loginBtn, "press login button");
+        if (loginStart != 0) {
+            LoginRoute.recordUiLogin((System.nanoTime() - loginStart) / 1_000_000);
+            loginStart = 0;
+        }
         return new ProductsPage();
     }
 
@@ -3,10 +3,8 @@ package com.qa.pages;
 import com.qa.MenuPage;
 import com.qa.utils.TestUtils;
 import io.appium.java_client.pagefactory.AndroidFindBy;
-import io.appium.java_client.pagefactory.AppiumFieldDecorator;
 import io.appium.java_client.pagefactory.iOSXCUITFindBy;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.PageFactory;
 
 /**
  * This class represents the Product Details Page of the application and provides
@@ -15,30 +13,28 @@ import org.openqa.selenium.support.PageFactory;
 public class ProductDetailsPage extends MenuPage {
     TestUtils utils = new TestUtils();
 
-    @AndroidFindBy(xpath = "//android.view.ViewGroup[@content-desc=\"test-Description\"]/android.widget.TextView[1]\n" +
-            "")
+    @AndroidFindBy(xpath = "//android.view.ViewGroup[@content-desc=\"test-Description\"]/android.widget.TextView[1]")
     @iOSXCUITFindBy(xpath = "//XCUIElementTypeOther[@name=\"test-Description\"]/child::XCUIElementTypeStaticText[1]")
-    private WebElement SLBTitle;
+    WebElement SLBTitle;
 
-    @AndroidFindBy(xpath = "//android.view.ViewGroup[@content-desc=\"test-Description\"]/android.widget.TextView[2]"
-            + "")
+    @AndroidFindBy(xpath = "//android.view.ViewGroup[@content-desc=\"test-Description\"]/android.widget.TextView[2]")
     @iOSXCUITFindBy(xpath = "//XCUIElementTypeOther[@name=\"test-Description\"]/child::XCUIElementTypeStaticText[2]")
-    private WebElement SLBTxt;
+    WebElement SLBTxt;
 
 //	@AndroidFindBy (accessibility = "test-Price") private MobileElement SLBPrice;
 
     @AndroidFindBy(accessibility = "test-BACK TO PRODUCTS")
     @iOSXCUITFindBy(id = "test-BACK TO PRODUCTS")
-    private WebElement backToProductsBtn;
+    WebElement backToProductsBtn;
 
     @iOSXCUITFindBy(id = "test-ADD TO CART")
-    private WebElement addToCartBtn;
+    WebElement addToCartBtn;
 
     /**
-     * Initializes the Page Factory with the Appium driver.
+     * Binds the page's elements through the generated ProductDetailsPage_Binder.
      */
     public ProductDetailsPage() {
-        PageFactory.initElements(new AppiumFieldDecorator(getDriver()), this);
+        ProductDetailsPage_Binder.bind(this);
     }
 
     /**
@@ -3,10 +3,8 @@ package com.qa.pages;
 import com.qa.MenuPage;
 import com.qa.utils.TestUtils;
 import io.appium.java_client.pagefactory.AndroidFindBy;
-import io.appium.java_client.pagefactory.AppiumFieldDecorator;
 import io.appium.java_client.pagefactory.iOSXCUITFindBy;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.PageFactory;
 
 /**
  * This class represents the Products Page of the application and provides methods
@@ -18,21 +16,21 @@ public class ProductsPage extends MenuPage {
     //	@AndroidFindBy (xpath = "//android.widget.ScrollView[@content-desc=\"test-PRODUCTS\"]/preceding-sibling::android.view.ViewGroup/android.widget.TextView")
     @AndroidFindBy(xpath = "//android.widget.TextView[@text='PRODUCTS']")
     @iOSXCUITFindBy(xpath = "//XCUIElementTypeOther[@name=\"test-Toggle\"]/parent::*[1]/preceding-sibling::*[1]")
-    private WebElement productTitleTxt;
+    WebElement productTitleTxt;
 
     @AndroidFindBy(xpath = "(//android.widget.TextView[@content-desc=\"test-Item title\"])[1]")
     @iOSXCUITFindBy(xpath = "(//XCUIElementTypeStaticText[@name=\"test-Item title\"])[1]")
-    private WebElement SLBTitle;
+    WebElement SLBTitle;
 
     @AndroidFindBy(xpath = "(//android.widget.TextView[@content-desc=\"test-Price\"])[1]")
     @iOSXCUITFindBy(xpath = "(//XCUIElementTypeStaticText[@name=\"test-Price\"])[1]")
-    private WebElement SLBPrice;
+    WebElement SLBPrice;
 
     /**
-     * Initializes the Page Factory with the Appium driver.
+     * Binds the page's elements through the generated ProductsPage_Binder.
      */
     public ProductsPage() {
-        PageFactory.initElements(new AppiumFieldDecorator(getDriver()), this);
+        ProductsPage_Binder.bind(this);
     }
 
     /**
@@ -3,10 +3,8 @@ package com.qa.pages;
 import com.qa.BaseTest;
 import com.qa.utils.TestUtils;
 import io.appium.java_client.pagefactory.AndroidFindBy;
-import io.appium.java_client.pagefactory.AppiumFieldDecorator;
 import io.appium.java_client.pagefactory.iOSXCUITFindBy;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.PageFactory;
 
 /**
  * This class represents the Settings Page of the application and provides methods
@@ -17,13 +15,13 @@ public class SettingsPage extends BaseTest {
 
     @AndroidFindBy(accessibility = "test-LOGOUT")
     @iOSXCUITFindBy(id = "test-LOGOUT")
-    private WebElement logoutBtn;
+    WebElement logoutBtn;
 
     /**
-     * Initializes the Page Factory with the Appium driver.
+     * Binds the page's elements through the generated SettingsPage_Binder.
      */
     public SettingsPage() {
-        PageFactory.initElements(new AppiumFieldDecorator(getDriver()), this);
+        SettingsPage_Binder.bind(this);
     }
 
     /**
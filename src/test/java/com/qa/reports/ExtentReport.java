@@ -2,20 +2,32 @@ package com.qa.reports;
 
 import com.aventstack.extentreports.ExtentReports;
 import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.markuputils.MarkupHelper;
+import com.aventstack.extentreports.model.Category;
 import com.aventstack.extentreports.reporter.ExtentSparkReporter;
 import com.aventstack.extentreports.reporter.configuration.Theme;
+import com.qa.metrics.CommandMetrics;
+import com.qa.metrics.LatencyHistogram;
+import com.qa.utils.LogSink;
+import org.json.JSONObject;
+import org.testng.ITestResult;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * This class manages the Extent Report instance and provides methods for creating
  * and retrieving test reports.
+ * <p>
+ * The test of each thread is kept in a ThreadLocal, so step logging from parallel devices
+ * never contends on a shared lock. Finished results are appended one line at a time to
+ * {@code Extent-results.jsonl}; the Spark HTML is only rendered when the suite finishes.
  */
 public class ExtentReport {
     static ExtentReports extent;
     final static String filePath = "Extent.html";
-    static Map<Integer, ExtentTest> extentTestMap = new HashMap();
+    final static String resultsFilePath = "Extent-results.jsonl";
+    static ThreadLocal<ExtentTest> extentTest = new ThreadLocal<ExtentTest>();
 
     /**
      * Retrieves the Extent Reports instance.
@@ -28,7 +40,7 @@ public class ExtentReport {
      */
     public synchronized static ExtentReports getReporter() {
         if (extent == null) {
-            ExtentSparkReporter html = new ExtentSparkReporter("Extent.html");
+            ExtentSparkReporter html = new ExtentSparkReporter(filePath);
             html.config().setDocumentTitle("Appium Framework");
             html.config().setReportName("MyApp");
             html.config().setTheme(Theme.DARK);
@@ -44,23 +56,81 @@ public class ExtentReport {
      *
      * @return The Extent Test instance.
      */
-    public static synchronized ExtentTest getTest() {
-        return (ExtentTest) extentTestMap.get((int) (long) (Thread.currentThread().getId()));
+    public static ExtentTest getTest() {
+        return extentTest.get();
     }
 
     /**
      * Starts a new test in the Extent Report.
      * Creates a new Extent Test instance with the given test name and description,
-     * adds it to the extentTestMap with the current thread ID as the key, and returns
-     * the test instance.
+     * binds it to the current thread, and returns the test instance.
      *
      * @param testName The name of the test.
      * @param desc     The description of the test.
      * @return The Extent Test instance.
      */
-    public static synchronized ExtentTest startTest(String testName, String desc) {
-        ExtentTest test = getReporter().createTest(testName, desc);
-        extentTestMap.put((int) (long) (Thread.currentThread().getId()), test);
+    public static ExtentTest startTest(String testName, String desc) {
+        ExtentTest test;
+        synchronized (ExtentReport.class) {
+            test = getReporter().createTest(testName, desc);
+        }
+        extentTest.set(test);
         return test;
     }
+
+    /**
+     * Ends the current thread's test: adds a table of the Appium commands it sent, appends its
+     * result to the results file and unbinds it from the thread.
+     *
+     * @param result The finished test result.
+     */
+    public static void endTest(ITestResult result) {
+        ExtentTest test = extentTest.get();
+        extentTest.remove();
+        Map<String, LatencyHistogram> commands = CommandMetrics.finishTest();
+        if (test == null) {
+            return;
+        }
+        long commandMicros = 0;
+        if (!commands.isEmpty()) {
+            String[][] rows = new String[commands.size() + 1][];
+            rows[0] = new String[]{"Appium command", "count", "total ms", "mean ms", "p90 ms", "max ms"};
+            int i = 1;
+            for (Map.Entry<String, LatencyHistogram> command : commands.entrySet()) {
+                LatencyHistogram h = command.getValue();
+                commandMicros += h.total();
+                rows[i++] = new String[]{command.getKey(), String.valueOf(h.count()), millis(h.total()),
+                        millis(h.mean()), millis(h.percentile(90)), millis(h.max())};
+            }
+            test.info(MarkupHelper.createTable(rows));
+        }
+        JSONObject line = new JSONObject();
+        line.put("name", test.getModel().getName());
+        line.put("class", result.getTestClass().getRealClass().getName());
+        line.put("status", test.getStatus().toString());
+        line.put("categories", test.getModel().getCategorySet().stream()
+                .map(Category::getName).collect(Collectors.toList()));
+        line.put("start", result.getStartMillis());
+        line.put("durationMillis", result.getEndMillis() - result.getStartMillis());
+        line.put("commandMillis", commandMicros / 1000);
+        LogSink.forFile(resultsFilePath).append(line.toString());
+    }
+
+    /**
+     * Formats microseconds as milliseconds with one decimal.
+     *
+     * @param micros The time in microseconds.
+     * @return The formatted milliseconds.
+     */
+    static String millis(long micros) {
+        return String.format("%.1f", micros / 1000.0);
+    }
+
+    /**
+     * Renders the HTML report and flushes the results file.
+     */
+    public static synchronized void flush() {
+        getReporter().flush();
+        LogSink.forFile(resultsFilePath).flush();
+    }
 }
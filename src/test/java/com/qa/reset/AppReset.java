@@ -0,0 +1,32 @@
+package com.qa.reset;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Selects how the app is brought back to a known state before a test method.
+ * <p>
+ * Can be placed on a test class or on a single test method; the method annotation wins.
+ * Tests without the annotation use {@link ResetStrategy#FULL_RESTART}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface AppReset {
+
+    /**
+     * The reset strategy to use.
+     *
+     * @return The strategy.
+     */
+    ResetStrategy value();
+
+    /**
+     * The deep link opened by {@link ResetStrategy#DEEP_LINK}. When empty, the
+     * {@code deepLinkURL} property from config.properties is used.
+     *
+     * @return The deep link URL.
+     */
+    String deepLink() default "";
+}
@@ -0,0 +1,35 @@
+package com.qa.reset;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a test that starts on the Products screen with a logged-in user but does not test the
+ * login itself; that is what {@code LoginTests} is for.
+ * <p>
+ * Before the method, the fastest {@link LoginRoute} that works reaches the Products screen, with
+ * the UI login as the fallback. Can be placed on a test class or on a single test method. Without
+ * an {@link AppReset} as well, the test is not reset separately, since the route already brings
+ * the app to a known state.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface LoggedIn {
+
+    /**
+     * The deep link opened by {@link LoginRoute#DEEP_LINK}. When empty, the
+     * {@code loggedInDeepLinkURL} property from config.properties is used.
+     *
+     * @return The deep link URL.
+     */
+    String deepLink() default "";
+
+    /**
+     * The {@code data/loginUsers.json} entry used by {@link LoginRoute#UI}.
+     *
+     * @return The user name in the data file.
+     */
+    String user() default "validUser";
+}
@@ -0,0 +1,164 @@
+package com.qa.reset;
+
+import com.qa.BaseTest;
+import com.qa.data.LoginUser;
+import com.qa.pages.LoginPage;
+import com.qa.utils.TestUtils;
+import io.appium.java_client.AppiumBy;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The ways a {@link LoggedIn} test reaches the Products screen, fastest first.
+ * <p>
+ * Each route keeps a count and the total time spent, and the UI logins of the whole run (the
+ * {@link #UI} route and every {@link LoginPage#login} of {@code LoginTests}) are timed as well, so
+ * the summary can tell how much the shortcut saved. A route that fails {@link #GIVE_UP_AFTER} times
+ * in a row on a device is not tried there again for the rest of the run, so one slow wait does not
+ * rule it out. The app has no intent extras that log a user in, so there
+ * is no Android-only route between the two.
+ */
+public enum LoginRoute {
+
+    /**
+     * Opens the app's products deep link, which shows the Products screen without the login form.
+     */
+    DEEP_LINK {
+        @Override
+        void apply(BaseTest base, LoggedIn config) {
+            String url = config.deepLink().isEmpty()
+                    ? base.getProps().getProperty("loggedInDeepLinkURL", base.getProps().getProperty("deepLinkURL"))
+                    : config.deepLink();
+            HashMap<String, String> args = new HashMap<String, String>();
+            args.put("url", url);
+            args.put(base.getPlatform().equalsIgnoreCase("Android") ? "package" : "bundleId", ResetStrategy.appId(base));
+            base.getDriver().executeScript("mobile: deepLink", args);
+            awaitProducts(base, DEEP_LINK_WAIT_SECONDS);
+        }
+    },
+
+    /**
+     * Logs in through the login form, after logging out if another screen is showing.
+     */
+    UI {
+        @Override
+        void apply(BaseTest base, LoggedIn config) {
+            ResetStrategy.LOGOUT.reset(base, null);
+            LoginUser user = LoginUser.get(config.user());
+            new LoginPage().login(user.username(), user.password());
+            awaitProducts(base, TestUtils.WAIT);
+        }
+    };
+
+    static final long DEEP_LINK_WAIT_SECONDS = 5;
+    static final int GIVE_UP_AFTER = 3;
+    static final Map<String, Integer> failures = new ConcurrentHashMap<String, Integer>();
+    static final LongAdder uiLogins = new LongAdder();
+    static final LongAdder uiLoginMillis = new LongAdder();
+    static TestUtils utils = new TestUtils();
+    final LongAdder count = new LongAdder();
+    final LongAdder totalMillis = new LongAdder();
+
+    /**
+     * Brings the app to the Products screen with a logged-in user.
+     *
+     * @param base   The test whose driver, platform and properties are used.
+     * @param config The annotation of the test.
+     */
+    abstract void apply(BaseTest base, LoggedIn config);
+
+    /**
+     * Waits for the Products screen.
+     *
+     * @param base    The test whose driver is used.
+     * @param seconds How long to wait.
+     */
+    static void awaitProducts(BaseTest base, long seconds) {
+        new WebDriverWait(base.getDriver(), Duration.ofSeconds(seconds))
+                .until(ExpectedConditions.visibilityOfElementLocated(AppiumBy.accessibilityId("test-PRODUCTS")));
+    }
+
+    /**
+     * Reaches the Products screen by the fastest route that works on the test's device.
+     *
+     * @param base   The test whose driver, platform and properties are used.
+     * @param config The annotation of the test.
+     * @return A line for the log and the report: the route, its time and the UI login time so far.
+     */
+    public static String establish(BaseTest base, LoggedIn config) {
+        for (LoginRoute route : values()) {
+            String key = base.getPlatform() + "_" + base.getDeviceName() + "/" + route;
+            if (route != UI && failures.getOrDefault(key, 0) >= GIVE_UP_AFTER) {
+                continue;
+            }
+            long start = System.nanoTime();
+            try {
+                route.apply(base, config);
+            } catch (RuntimeException e) {
+                if (route == UI) {
+                    throw e;
+                }
+                int failed = failures.merge(key, 1, Integer::sum);
+                utils.log().info(route + " login route failed on " + base.getPlatform() + "_" + base.getDeviceName()
+                        + " (" + failed + " in a row)" + (failed >= GIVE_UP_AFTER ? ", not trying it again in this run" : "")
+                        + ": " + e.getMessage());
+                continue;
+            }
+            failures.remove(key);
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            route.count.increment();
+            route.totalMillis.add(elapsed);
+            long logins = uiLogins.sum();
+            return "logged in via " + route + " in " + elapsed + " ms"
+                    + (route == UI || logins == 0 ? "" : " (UI login avg " + uiLoginMillis.sum() / logins + " ms)");
+        }
+        throw new IllegalStateException("no login route left");
+    }
+
+    /**
+     * Records the time of a UI login, the baseline the shortcut routes are measured against.
+     *
+     * @param millis The time in milliseconds.
+     */
+    public static void recordUiLogin(long millis) {
+        uiLogins.increment();
+        uiLoginMillis.add(millis);
+    }
+
+    /**
+     * Builds a one-line summary of how often each route ran, how long it took, and the time saved
+     * over logging in through the UI every time.
+     *
+     * @return The summary.
+     */
+    public static String summary() {
+        StringBuilder sb = new StringBuilder("logged-in summary:");
+        for (LoginRoute route : values()) {
+            long n = route.count.sum();
+            if (n > 0) {
+                long total = route.totalMillis.sum();
+                sb.append(" ").append(route).append("=").append(n).append("x/")
+                        .append(total).append("ms (avg ").append(total / n).append("ms)");
+            }
+        }
+        long logins = uiLogins.sum();
+        if (logins > 0) {
+            long uiAvg = uiLoginMillis.sum() / logins;
+            long saved = 0;
+            for (LoginRoute route : values()) {
+                if (route != UI) {
+                    saved += route.count.sum() * uiAvg - route.totalMillis.sum();
+                }
+            }
+            sb.append(" | UI login avg ").append(uiAvg).append("ms over ").append(logins)
+                    .append(", saved ").append(saved).append("ms");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,147 @@
+package com.qa.reset;
+
+import com.qa.BaseTest;
+import com.qa.utils.TestUtils;
+import io.appium.java_client.AppiumBy;
+import io.appium.java_client.InteractsWithApps;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The ways the app can be brought back to a known state between test methods,
+ * ordered roughly from slowest to fastest.
+ * <p>
+ * Each strategy keeps a count and the total time spent so the cost of resets can be
+ * reported at the end of the suite. Strategies that cannot be used on the current
+ * device fall back to {@link #FULL_RESTART}.
+ */
+public enum ResetStrategy {
+
+    /**
+     * Terminates and relaunches the app. This is a full cold start.
+     */
+    FULL_RESTART {
+        @Override
+        void apply(BaseTest base, AppReset config) {
+            base.closeApp();
+            base.launchApp();
+        }
+    },
+
+    /**
+     * Clears the app data and relaunches it, which lands on the login screen with no
+     * stored state. Uses the {@code mobile: clearApp} extension; simulators and emulators
+     * support it, real iOS devices do not.
+     */
+    CLEAR_DATA {
+        @Override
+        void apply(BaseTest base, AppReset config) {
+            HashMap<String, String> args = new HashMap<String, String>();
+            args.put(base.getPlatform().equalsIgnoreCase("Android") ? "appId" : "bundleId", appId(base));
+            base.getDriver().executeScript("mobile: clearApp", args);
+            base.launchApp();
+        }
+    },
+
+    /**
+     * Opens a deep link into a known screen of the running app without restarting it.
+     */
+    DEEP_LINK {
+        @Override
+        void apply(BaseTest base, AppReset config) {
+            String url = config == null || config.deepLink().isEmpty()
+                    ? base.getProps().getProperty("deepLinkURL") : config.deepLink();
+            HashMap<String, String> args = new HashMap<String, String>();
+            args.put("url", url);
+            args.put(base.getPlatform().equalsIgnoreCase("Android") ? "package" : "bundleId", appId(base));
+            base.getDriver().executeScript("mobile: deepLink", args);
+        }
+    },
+
+    /**
+     * Navigates back to the login screen inside the app by logging out through the menu.
+     * Does nothing when the login screen is already showing.
+     */
+    LOGOUT {
+        @Override
+        void apply(BaseTest base, AppReset config) {
+            if (!base.getDriver().findElements(AppiumBy.accessibilityId("test-Username")).isEmpty()) {
+                return;
+            }
+            WebDriverWait wait = new WebDriverWait(base.getDriver(), Duration.ofSeconds(TestUtils.WAIT));
+            wait.until(ExpectedConditions.elementToBeClickable(AppiumBy.accessibilityId("test-Menu"))).click();
+            wait.until(ExpectedConditions.elementToBeClickable(AppiumBy.accessibilityId("test-LOGOUT"))).click();
+            wait.until(ExpectedConditions.visibilityOfElementLocated(AppiumBy.accessibilityId("test-Username")));
+        }
+    };
+
+    static TestUtils utils = new TestUtils();
+    final LongAdder count = new LongAdder();
+    final LongAdder totalMillis = new LongAdder();
+
+    /**
+     * Brings the app to the strategy's known state.
+     *
+     * @param base   The test whose driver, platform and properties are used.
+     * @param config The annotation that selected the strategy, or null for the default.
+     */
+    abstract void apply(BaseTest base, AppReset config);
+
+    /**
+     * Applies the strategy, falling back to a full restart if it fails, and records
+     * how long the reset took.
+     *
+     * @param base   The test whose driver, platform and properties are used.
+     * @param config The annotation that selected the strategy, or null for the default.
+     * @return The time the reset took in milliseconds.
+     */
+    public long reset(BaseTest base, AppReset config) {
+        long start = System.nanoTime();
+        try {
+            apply(base, config);
+        } catch (RuntimeException e) {
+            if (this == FULL_RESTART) {
+                throw e;
+            }
+            utils.log().info(this + " reset failed, falling back to " + FULL_RESTART + ": " + e.getMessage());
+            FULL_RESTART.apply(base, config);
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        count.increment();
+        totalMillis.add(elapsed);
+        return elapsed;
+    }
+
+    /**
+     * Builds a one-line summary of how often each strategy ran and how long it took.
+     *
+     * @return The summary.
+     */
+    public static String summary() {
+        StringBuilder sb = new StringBuilder("app reset summary:");
+        for (ResetStrategy strategy : values()) {
+            long n = strategy.count.sum();
+            if (n > 0) {
+                long total = strategy.totalMillis.sum();
+                sb.append(" ").append(strategy).append("=").append(n).append("x/")
+                        .append(total).append("ms (avg ").append(total / n).append("ms)");
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Gets the app package or bundle id for the current platform.
+     *
+     * @param base The test whose platform and properties are used.
+     * @return The app id.
+     */
+    static String appId(BaseTest base) {
+        return base.getPlatform().equalsIgnoreCase("Android")
+                ? base.getProps().getProperty("androidAppPackage") : base.getProps().getProperty("iOSBundleId");
+    }
+}
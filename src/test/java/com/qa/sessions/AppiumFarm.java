@@ -0,0 +1,423 @@
+package com.qa.sessions;
+
+import com.qa.utils.TestUtils;
+import io.appium.java_client.service.local.AppiumDriverLocalService;
+import org.apache.logging.log4j.ThreadContext;
+
+import java.io.File;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * This class starts and supervises several Appium servers and spreads new sessions over them, since
+ * one Appium process becomes CPU-bound at around 6 to 8 concurrent UiAutomator2 sessions.
+ * <p>
+ * Each server gets a port from the {@link PortAllocator} and its own log file. A new session goes
+ * to the running server with the fewest open sessions; the session holds a {@link Slot} on it
+ * until the {@link SessionPool} quits the session. A supervisor restarts a server that has died,
+ * on the same port and with a new log file so the crash log is kept. Sessions of a dead server
+ * fail the pool's health check and are replaced. A restart runs outside the farm's lock, so new
+ * sessions go to the other servers meanwhile; a server being restarted is marked and skipped.
+ * <p>
+ * Checking a server is an HTTP request, so it is never done under the farm's lock: the supervisor
+ * refreshes each server's {@code alive} flag every {@value #SUPERVISE_SECONDS} seconds, a failed
+ * {@link Slot#isServerRunning()} clears it, and new sessions are assigned by the flag alone.
+ */
+public class AppiumFarm {
+    public static final int SESSIONS_PER_SERVER = 6;
+    static final String DEFAULT_PORT_RANGE = "4730-4799";
+    static final long SUPERVISE_SECONDS = 5;
+    static final Duration READY_TIMEOUT = Duration.ofSeconds(60);
+    static final long RESTART_WAIT_MILLIS = 1000;
+
+    static final List<Member> members = new ArrayList<Member>();
+    static BiFunction<Integer, File, Instance> factory;
+    static ScheduledExecutorService supervisor;
+    static TestUtils utils = new TestUtils();
+
+    /**
+     * An Appium server process as the farm sees it; {@link #of(AppiumDriverLocalService)} adapts
+     * the java-client service.
+     */
+    public interface Instance {
+
+        /**
+         * Starts the server; the farm then polls its {@code /status} until it is ready.
+         */
+        void start();
+
+        /**
+         * Checks that the server is still up.
+         *
+         * @return True if it is running.
+         */
+        boolean isRunning();
+
+        /**
+         * Stops the server.
+         */
+        void stop();
+
+        /**
+         * Gets the URL sessions are created at.
+         *
+         * @return The URL.
+         */
+        URL getUrl();
+    }
+
+    /**
+     * One server of the farm.
+     */
+    static class Member {
+        final int index;
+        final PortAllocator.Lease port;
+        final AtomicInteger openSessions = new AtomicInteger();
+        final LongAdder sessions = new LongAdder();
+        volatile Instance instance;
+        volatile boolean alive;
+        volatile int restarts;
+        boolean restarting;
+
+        Member(int index, PortAllocator.Lease port) {
+            this.index = index;
+            this.port = port;
+        }
+
+        /**
+         * Gets the log file for the current run of the server.
+         *
+         * @return The log file.
+         */
+        File logFile() {
+            return new File("ServerLogs" + File.separator + "server-" + index
+                    + (restarts == 0 ? "" : "-restart-" + restarts) + ".log");
+        }
+
+        @Override
+        public String toString() {
+            return "server-" + index + "(" + port.port(0) + ")";
+        }
+    }
+
+    /**
+     * A session's share of a server; closing it frees the share.
+     */
+    public static class Slot implements AutoCloseable {
+        final Member member;
+        boolean closed;
+
+        Slot(Member member) {
+            this.member = member;
+        }
+
+        /**
+         * Gets the URL of the server the session was assigned to.
+         *
+         * @return The URL.
+         */
+        public URL getUrl() {
+            return member.instance.getUrl();
+        }
+
+        /**
+         * Checks whether the server the session was assigned to is still up. A server found down is
+         * no longer given new sessions until the supervisor has restarted it.
+         *
+         * @return True if it is running.
+         */
+        public boolean isServerRunning() {
+            boolean running = member.instance.isRunning();
+            if (!running) {
+                member.alive = false;
+            }
+            return running;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                member.openSessions.decrementAndGet();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return member.toString();
+        }
+    }
+
+    /**
+     * Adapts a java-client local service.
+     *
+     * @param service The service.
+     * @return The instance.
+     */
+    public static Instance of(AppiumDriverLocalService service) {
+        return new Instance() {
+            @Override
+            public void start() {
+                service.start();
+                service.clearOutPutStreams();
+            }
+
+            @Override
+            public boolean isRunning() {
+                return service.isRunning();
+            }
+
+            @Override
+            public void stop() {
+                service.stop();
+            }
+
+            @Override
+            public URL getUrl() {
+                return service.getUrl();
+            }
+        };
+    }
+
+    /**
+     * Works out how many servers a number of devices needs, from the {@code appiumServers} property:
+     * a count, or "auto" for one server per {@link #SESSIONS_PER_SERVER} devices.
+     *
+     * @param setting The property value, or null for "auto".
+     * @param devices The number of devices.
+     * @return The number of servers, at least 1.
+     */
+    public static int serverCount(String setting, int devices) {
+        if (setting == null || setting.isEmpty() || setting.equalsIgnoreCase("auto")) {
+            return Math.max(1, (devices + SESSIONS_PER_SERVER - 1) / SESSIONS_PER_SERVER);
+        }
+        return Math.max(1, Integer.parseInt(setting.trim()));
+    }
+
+    /**
+     * Starts the servers in parallel and the supervisor.
+     *
+     * @param count     The number of servers.
+     * @param portRange The port range as "first-last"; null or empty for 4730-4799.
+     * @param factory   Creates a server for a port and log file; called again to restart it.
+     */
+    public static synchronized void start(int count, String portRange, BiFunction<Integer, File, Instance> factory) {
+        if (!members.isEmpty()) {
+            throw new IllegalStateException("the Appium farm is already running");
+        }
+        AppiumFarm.factory = factory;
+        String range = portRange == null || portRange.isEmpty() ? DEFAULT_PORT_RANGE : portRange;
+        for (int i = 1; i <= count; i++) {
+            members.add(new Member(i, PortAllocator.lease(1, range)));
+        }
+        long start = System.currentTimeMillis();
+        try {
+            members.parallelStream().forEach(AppiumFarm::launch);
+        } catch (RuntimeException e) {
+            stop();
+            throw e;
+        }
+        utils.log().info("started " + count + " Appium server(s) " + members + " in "
+                + (System.currentTimeMillis() - start) + " ms");
+        supervisor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(() -> {
+                ThreadContext.put("ROUTINGKEY", "ServerLogs");
+                r.run();
+            }, "appium-farm-supervisor");
+            t.setDaemon(true);
+            return t;
+        });
+        supervisor.scheduleWithFixedDelay(AppiumFarm::supervise, SUPERVISE_SECONDS, SUPERVISE_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Checks whether the farm has been started.
+     *
+     * @return True if it is running.
+     */
+    public static synchronized boolean isRunning() {
+        return !members.isEmpty();
+    }
+
+    /**
+     * Assigns a new session to the running server with the fewest open sessions. If none is running,
+     * it waits for a server that is being restarted, or else restarts a dead server itself.
+     *
+     * @return The slot, to be closed when the session is quit.
+     */
+    public static Slot assign() {
+        while (true) {
+            Member dead;
+            synchronized (AppiumFarm.class) {
+                Member best = null;
+                boolean restarting = false;
+                for (Member member : members) {
+                    if (member.restarting) {
+                        restarting = true;
+                    } else if (member.alive
+                            && (best == null || member.openSessions.get() < best.openSessions.get())) {
+                        best = member;
+                    }
+                }
+                if (best != null) {
+                    best.openSessions.incrementAndGet();
+                    best.sessions.increment();
+                    return new Slot(best);
+                }
+                if (members.isEmpty()) {
+                    throw new IllegalStateException("the Appium farm is not running");
+                }
+                if (restarting) {
+                    try {
+                        AppiumFarm.class.wait(RESTART_WAIT_MILLIS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("interrupted while waiting for an Appium server", e);
+                    }
+                    continue;
+                }
+                dead = members.get(0);
+                dead.restarting = true;
+            }
+            restart(dead);
+        }
+    }
+
+    /**
+     * Refreshes the {@code alive} flag of every server and restarts those that have died since the
+     * last check. A failed restart is logged and tried again on the next check.
+     */
+    static void supervise() {
+        for (Member member : snapshot()) {
+            try {
+                int restarts = member.restarts;
+                boolean running = !member.restarting && member.instance.isRunning();
+                // a restart that overlapped the check makes its result stale
+                if (member.restarting || member.restarts != restarts) {
+                    continue;
+                }
+                member.alive = running;
+                if (!running && claim(member)) {
+                    restart(member);
+                }
+            } catch (RuntimeException e) {
+                utils.log().error("could not restart " + member + ", trying again in " + SUPERVISE_SECONDS + " s", e);
+            }
+        }
+    }
+
+    /**
+     * Marks a dead server as being restarted, unless it has left the farm or is already being
+     * restarted.
+     *
+     * @param member The server.
+     * @return True if the caller is to restart it.
+     */
+    static synchronized boolean claim(Member member) {
+        if (!members.contains(member) || member.restarting || member.alive) {
+            return false;
+        }
+        member.restarting = true;
+        return true;
+    }
+
+    /**
+     * Copies the member list, for iterating outside the lock.
+     *
+     * @return The members.
+     */
+    static synchronized List<Member> snapshot() {
+        return new ArrayList<Member>(members);
+    }
+
+    /**
+     * Starts a new process for a server on its port and polls its {@code /status} until it is ready.
+     *
+     * @param member The server.
+     */
+    static void launch(Member member) {
+        member.instance = factory.apply(member.port.port(0), member.logFile());
+        member.instance.start();
+        try {
+            ServerStatus.awaitReady(member.instance.getUrl(), READY_TIMEOUT);
+            member.alive = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for " + member, e);
+        }
+    }
+
+    /**
+     * Replaces a dead server the caller has marked as restarting, without holding the farm's lock,
+     * and clears the mark when done. Its open sessions are gone with it; their slots are freed when
+     * the session pool discards them.
+     *
+     * @param member The server.
+     */
+    static void restart(Member member) {
+        try {
+            utils.log().error(member + " is not running, restarting it (" + member.openSessions.get()
+                    + " open session(s) lost)");
+            try {
+                member.instance.stop();
+            } catch (Exception e) {
+                utils.log().error("error stopping " + member + ": " + e.toString());
+            }
+            member.restarts++;
+            launch(member);
+            utils.log().info(member + " restarted, log: " + member.logFile());
+        } finally {
+            synchronized (AppiumFarm.class) {
+                member.restarting = false;
+                AppiumFarm.class.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Builds a one-line summary of the sessions and restarts of each server.
+     *
+     * @return The summary.
+     */
+    public static synchronized String summary() {
+        StringBuilder sb = new StringBuilder("appium farm summary:");
+        for (Member member : members) {
+            sb.append(" ").append(member).append("=").append(member.sessions.sum()).append(" session(s)/")
+                    .append(member.restarts).append(" restart(s)");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Stops the supervisor and every server and releases their ports. Called once at the end of
+     * the suite, after the sessions are quit.
+     */
+    public static synchronized void stop() {
+        if (supervisor != null) {
+            supervisor.shutdownNow();
+            supervisor = null;
+        }
+        for (Member member : members) {
+            try {
+                if (member.instance != null) {
+                    member.instance.stop();
+                }
+            } catch (Exception e) {
+                utils.log().error("error stopping " + member + ": " + e.toString());
+            }
+            member.port.close();
+        }
+        if (!members.isEmpty()) {
+            utils.log().info("Appium farm stopped, " + members.size() + " server(s)");
+        }
+        members.clear();
+    }
+}
@@ -0,0 +1,287 @@
+package com.qa.sessions;
+
+import com.qa.utils.TestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * This class leases the local ports a session needs for its driver servers (systemPort,
+ * chromeDriverPort, wdaLocalPort, webkitDebugProxyPort), so devices do not need ports pinned in
+ * testng.xml and suites sharing a host do not collide.
+ * <p>
+ * Leases are kept in a table file shared by every JVM on the host and only read or written under
+ * an exclusive file lock. A lease whose owning process has exited, or that is older than
+ * {@link #STALE_AFTER_HOURS}, is reclaimed. Ports are probed before they are handed out, and the
+ * search resumes after the last leased port so a port released a moment ago is not reused at once.
+ */
+public class PortAllocator {
+    static final String DEFAULT_RANGE = "8200-8999";
+    static final long STALE_AFTER_HOURS = 24;
+    static final Object jvmLock = new Object();
+    static TestUtils utils = new TestUtils();
+
+    /**
+     * Ports leased together for one session; closing the lease releases them.
+     */
+    public static class Lease implements AutoCloseable {
+        final int[] ports;
+        boolean closed;
+
+        Lease(int[] ports) {
+            this.ports = ports;
+        }
+
+        /**
+         * Gets one of the leased ports.
+         *
+         * @param i The index, from 0.
+         * @return The port.
+         */
+        public int port(int i) {
+            return ports[i];
+        }
+
+        /**
+         * Releases the ports. Closing a lease twice has no effect.
+         */
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                release(ports);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(ports);
+        }
+    }
+
+    /**
+     * The lease table: the leases by port, and the port the next search starts from.
+     */
+    static class Table {
+        final Map<Integer, Entry> leases = new LinkedHashMap<Integer, Entry>();
+        int next;
+    }
+
+    /**
+     * One lease of the table.
+     */
+    static class Entry {
+        final long pid;
+        final long leasedAt;
+
+        Entry(long pid, long leasedAt) {
+            this.pid = pid;
+            this.leasedAt = leasedAt;
+        }
+    }
+
+    /**
+     * Gets the lease table shared by the JVMs of this host. Run with {@code -DportLeaseFile} to use
+     * another file, e.g. to keep two independent farms apart.
+     *
+     * @return The table file.
+     */
+    static Path tableFile() {
+        return Paths.get(System.getProperty("portLeaseFile",
+                Paths.get(System.getProperty("java.io.tmpdir"), "appium-port-leases.txt").toString()));
+    }
+
+    /**
+     * Leases free ports from a range.
+     *
+     * @param count The number of ports.
+     * @param range The range as "first-last", e.g. "8200-8999"; null or empty for the default range.
+     * @return The lease.
+     * @throws IllegalStateException If the range has fewer than {@code count} free ports.
+     */
+    public static Lease lease(int count, String range) {
+        String[] bounds = (range == null || range.isEmpty() ? DEFAULT_RANGE : range).trim().split("\\s*-\\s*");
+        int first = Integer.parseInt(bounds[0]);
+        int last = Integer.parseInt(bounds[1]);
+        int[] ports = new int[count];
+        update(table -> {
+            int size = last - first + 1;
+            int start = table.next < first || table.next > last ? first : table.next;
+            int found = 0;
+            for (int i = 0; i < size && found < count; i++) {
+                int port = first + (start - first + i) % size;
+                if (!table.leases.containsKey(port) && isFree(port)) {
+                    ports[found++] = port;
+                }
+            }
+            if (found < count) {
+                throw new IllegalStateException("only " + found + " of " + count + " ports free in " + first + "-" + last);
+            }
+            long now = System.currentTimeMillis();
+            for (int port : ports) {
+                table.leases.put(port, new Entry(ProcessHandle.current().pid(), now));
+            }
+            table.next = ports[count - 1] + 1;
+        });
+        return new Lease(ports);
+    }
+
+    /**
+     * Leases a block of consecutive free ports that starts at a multiple of the block size from the
+     * start of the range, e.g. the even console port and odd adb port of an Android emulator.
+     *
+     * @param size  The number of consecutive ports.
+     * @param range The range as "first-last".
+     * @return The lease.
+     * @throws IllegalStateException If the range has no free block.
+     */
+    public static Lease leaseBlock(int size, String range) {
+        String[] bounds = range.trim().split("\\s*-\\s*");
+        int first = Integer.parseInt(bounds[0]);
+        int last = Integer.parseInt(bounds[1]);
+        int[] ports = new int[size];
+        update(table -> {
+            for (int start = first; start + size - 1 <= last; start += size) {
+                boolean free = true;
+                for (int port = start; port < start + size && free; port++) {
+                    free = !table.leases.containsKey(port) && isFree(port);
+                }
+                if (free) {
+                    long now = System.currentTimeMillis();
+                    for (int i = 0; i < size; i++) {
+                        ports[i] = start + i;
+                        table.leases.put(start + i, new Entry(ProcessHandle.current().pid(), now));
+                    }
+                    return;
+                }
+            }
+            throw new IllegalStateException("no " + size + " consecutive free ports in " + first + "-" + last);
+        });
+        return new Lease(ports);
+    }
+
+    /**
+     * Releases leased ports.
+     *
+     * @param ports The ports.
+     */
+    static void release(int[] ports) {
+        update(table -> {
+            for (int port : ports) {
+                table.leases.remove(port);
+            }
+        });
+    }
+
+    /**
+     * Reads the lease table, drops stale leases, applies the change and writes it back, all under
+     * the file lock.
+     *
+     * @param change The change to apply.
+     */
+    static void update(Consumer<Table> change) {
+        // a JVM cannot hold two locks on one file, so threads of this JVM take turns first
+        synchronized (jvmLock) {
+            try (FileChannel channel = FileChannel.open(tableFile(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock()) {
+                Table table = read(channel);
+                reclaimStale(table.leases);
+                change.accept(table);
+                write(channel, table);
+            } catch (IOException e) {
+                throw new UncheckedIOException("could not update the port lease table " + tableFile(), e);
+            }
+        }
+    }
+
+    /**
+     * Parses the lease table: a "next port" line, then one "port pid leasedAtMillis" line per lease.
+     *
+     * @param channel The locked table file.
+     * @return The table.
+     * @throws IOException If the file cannot be read.
+     */
+    static Table read(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        channel.read(buffer, 0);
+        Table table = new Table();
+        for (String line : new String(buffer.array(), StandardCharsets.UTF_8).split("\n")) {
+            String[] fields = line.trim().split(" ");
+            if (fields.length == 2 && fields[0].equals("next")) {
+                table.next = Integer.parseInt(fields[1]);
+            } else if (fields.length == 3) {
+                table.leases.put(Integer.parseInt(fields[0]), new Entry(Long.parseLong(fields[1]), Long.parseLong(fields[2])));
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Replaces the content of the lease table.
+     *
+     * @param channel The locked table file.
+     * @param table   The table.
+     * @throws IOException If the file cannot be written.
+     */
+    static void write(FileChannel channel, Table table) throws IOException {
+        StringBuilder sb = new StringBuilder("next ").append(table.next).append('\n');
+        for (Map.Entry<Integer, Entry> row : table.leases.entrySet()) {
+            sb.append(row.getKey()).append(' ').append(row.getValue().pid).append(' ')
+                    .append(row.getValue().leasedAt).append('\n');
+        }
+        channel.truncate(0);
+        channel.write(ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8)), 0);
+    }
+
+    /**
+     * Drops leases whose process has exited or that are older than {@link #STALE_AFTER_HOURS}.
+     *
+     * @param table The leases by port.
+     */
+    static void reclaimStale(Map<Integer, Entry> table) {
+        long oldest = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(STALE_AFTER_HOURS);
+        List<Integer> reclaimed = new ArrayList<Integer>();
+        for (Iterator<Map.Entry<Integer, Entry>> it = table.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Integer, Entry> row = it.next();
+            Entry entry = row.getValue();
+            if (entry.leasedAt < oldest || !ProcessHandle.of(entry.pid).map(ProcessHandle::isAlive).orElse(false)) {
+                reclaimed.add(row.getKey());
+                it.remove();
+            }
+        }
+        if (!reclaimed.isEmpty()) {
+            utils.log().info("reclaimed stale port leases: " + reclaimed);
+        }
+    }
+
+    /**
+     * Checks that nothing outside the lease table listens on the port.
+     *
+     * @param port The port.
+     * @return True if the port could be bound.
+     */
+    static boolean isFree(int port) {
+        try (ServerSocket socket = new ServerSocket(port)) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
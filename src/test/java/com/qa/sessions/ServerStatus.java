@@ -0,0 +1,93 @@
+package com.qa.sessions;
+
+import com.qa.utils.TestUtils;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * This class asks an Appium server whether it accepts sessions, through its {@code /status}
+ * endpoint. An open port only shows that something listens; {@code /status} answering with
+ * {@code "ready": true} shows that Appium has finished starting up.
+ */
+public class ServerStatus {
+    static final int CONNECT_TIMEOUT_MILLIS = 1000;
+    static final int READ_TIMEOUT_MILLIS = 5000;
+    static final long FIRST_POLL_MILLIS = 100;
+    static final long MAX_POLL_MILLIS = 1000;
+    static TestUtils utils = new TestUtils();
+
+    /**
+     * Builds the status URL of a server.
+     *
+     * @param server The server URL, with or without a base path.
+     * @return The {@code /status} URL.
+     * @throws MalformedURLException If the URL cannot be built.
+     */
+    static URL statusUrl(URL server) throws MalformedURLException {
+        String base = server.toString();
+        return new URL(base + (base.endsWith("/") ? "" : "/") + "status");
+    }
+
+    /**
+     * Asks the server once whether it is ready.
+     *
+     * @param server The server URL.
+     * @return True if {@code /status} answered with {@code ready} true, or, for servers that do
+     * not report readiness, with HTTP 200.
+     */
+    public static boolean isReady(URL server) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) statusUrl(server).openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+            if (connection.getResponseCode() != 200) {
+                return false;
+            }
+            try (InputStream in = connection.getInputStream()) {
+                JSONObject value = new JSONObject(new String(in.readAllBytes(), StandardCharsets.UTF_8))
+                        .optJSONObject("value");
+                return value == null || value.optBoolean("ready", true);
+            }
+        } catch (IOException | RuntimeException e) {
+            return false;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Polls the server until it is ready, backing off from 100 ms to 1 s between polls.
+     *
+     * @param server  The server URL.
+     * @param timeout How long to wait.
+     * @return How long the server took to become ready, in milliseconds.
+     * @throws IllegalStateException If the server is not ready within the timeout.
+     * @throws InterruptedException  If the thread is interrupted while waiting.
+     */
+    public static long awaitReady(URL server, Duration timeout) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        long deadline = start + timeout.toMillis();
+        long poll = FIRST_POLL_MILLIS;
+        while (!isReady(server)) {
+            long now = System.currentTimeMillis();
+            if (now >= deadline) {
+                throw new IllegalStateException("Appium server " + server + " was not ready within " + timeout.getSeconds() + " s");
+            }
+            Thread.sleep(Math.min(poll, deadline - now));
+            poll = Math.min(poll * 2, MAX_POLL_MILLIS);
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        utils.log().info("Appium server " + server + " ready after " + elapsed + " ms");
+        return elapsed;
+    }
+}
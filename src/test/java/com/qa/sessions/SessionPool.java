@@ -0,0 +1,197 @@
+package com.qa.sessions;
+
+import com.qa.utils.TestUtils;
+import io.appium.java_client.AppiumDriver;
+import org.openqa.selenium.Capabilities;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * This class keeps warm Appium sessions keyed by their capability set so that
+ * consecutive tests on the same device reuse a session instead of paying session
+ * creation, driver server install and app install again.
+ * <p>
+ * Sessions are health-checked before they are handed out and are only quit when
+ * they are found broken or when the pool is shut down at the end of the suite. Resources
+ * attached to a session, like its leased ports, live exactly as long as the session.
+ */
+public class SessionPool {
+    static Map<String, Deque<AppiumDriver>> idleSessions = new ConcurrentHashMap<String, Deque<AppiumDriver>>();
+    static Map<AppiumDriver, String> leasedSessions = new ConcurrentHashMap<AppiumDriver, String>();
+    static Map<AppiumDriver, List<AutoCloseable>> resources = new ConcurrentHashMap<AppiumDriver, List<AutoCloseable>>();
+    static TestUtils utils = new TestUtils();
+
+    /**
+     * Hands out a healthy session for the given capabilities.
+     * <p>
+     * An idle session with the same capability set is reused when it passes the health
+     * check; broken sessions are quit and skipped. If no idle session is available the
+     * factory is called to create a new one.
+     *
+     * @param capabilities The capabilities the session must have been created with.
+     * @param factory      Creates a new session when no warm one is available.
+     * @return The leased Appium driver.
+     * @throws Exception If a new session has to be created and its creation fails.
+     */
+    public static AppiumDriver acquire(Capabilities capabilities, Callable<AppiumDriver> factory) throws Exception {
+        String key = keyOf(capabilities);
+        Deque<AppiumDriver> idle = idleSessions.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<AppiumDriver>());
+
+        AppiumDriver driver;
+        while ((driver = idle.pollFirst()) != null) {
+            if (isHealthy(driver)) {
+                utils.log().info("reusing warm session: " + driver.getSessionId());
+                leasedSessions.put(driver, key);
+                return driver;
+            }
+            utils.log().info("discarding broken session: " + driver.getSessionId());
+            quitQuietly(driver);
+        }
+
+        long start = System.currentTimeMillis();
+        driver = factory.call();
+        utils.log().info("created new session: " + driver.getSessionId() + " in "
+                + (System.currentTimeMillis() - start) + " ms");
+        leasedSessions.put(driver, key);
+        return driver;
+    }
+
+    /**
+     * Returns a leased session to the pool so that the next test with the same
+     * capabilities can reuse it.
+     *
+     * @param driver The driver to return.
+     */
+    public static void release(AppiumDriver driver) {
+        String key = leasedSessions.remove(driver);
+        if (key == null) {
+            quitQuietly(driver);
+            return;
+        }
+        idleSessions.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<AppiumDriver>()).offerFirst(driver);
+    }
+
+    /**
+     * Adds a session created ahead of time, e.g. by {@link SessionWarmup}, to the idle sessions for
+     * its capabilities.
+     *
+     * @param capabilities The capabilities a test will ask for.
+     * @param driver       The session.
+     */
+    public static void offer(Capabilities capabilities, AppiumDriver driver) {
+        idleSessions.computeIfAbsent(keyOf(capabilities), k -> new ConcurrentLinkedDeque<AppiumDriver>()).offerLast(driver);
+    }
+
+    /**
+     * Quits a leased session that is known to be broken instead of returning it to the pool.
+     *
+     * @param driver The driver to discard.
+     */
+    public static void discard(AppiumDriver driver) {
+        leasedSessions.remove(driver);
+        quitQuietly(driver);
+    }
+
+    /**
+     * Quits the idle sessions for the given capabilities, e.g. before their device is reset.
+     *
+     * @param capabilities The capabilities the sessions were created with.
+     */
+    public static void evict(Capabilities capabilities) {
+        Deque<AppiumDriver> idle = idleSessions.get(keyOf(capabilities));
+        AppiumDriver driver;
+        while (idle != null && (driver = idle.pollFirst()) != null) {
+            quitQuietly(driver);
+        }
+    }
+
+    /**
+     * Ties a resource, such as the {@link PortAllocator.Lease} of the session's ports or its
+     * {@link AppiumFarm.Slot}, to a session; it is closed when the pool quits the session.
+     *
+     * @param driver   The session.
+     * @param resource The resource.
+     */
+    public static void attach(AppiumDriver driver, AutoCloseable resource) {
+        resources.computeIfAbsent(driver, k -> new CopyOnWriteArrayList<AutoCloseable>()).add(resource);
+    }
+
+    /**
+     * Quits every pooled session, idle or leased. Called once at the end of the suite.
+     */
+    public static void shutdown() {
+        List<AppiumDriver> sessions = new ArrayList<AppiumDriver>(leasedSessions.keySet());
+        leasedSessions.clear();
+        for (Deque<AppiumDriver> idle : idleSessions.values()) {
+            AppiumDriver driver;
+            while ((driver = idle.pollFirst()) != null) {
+                sessions.add(driver);
+            }
+        }
+        for (AppiumDriver driver : sessions) {
+            quitQuietly(driver);
+        }
+        if (!sessions.isEmpty()) {
+            utils.log().info("session pool shut down, quit " + sessions.size() + " session(s)");
+        }
+    }
+
+    /**
+     * Checks that the session is still alive on the server with a cheap round trip.
+     *
+     * @param driver The driver to check.
+     * @return True if the session answered, false otherwise.
+     */
+    static boolean isHealthy(AppiumDriver driver) {
+        if (driver.getSessionId() == null) {
+            return false;
+        }
+        try {
+            driver.manage().timeouts().getImplicitWaitTimeout();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Builds a stable pool key from the capability set.
+     *
+     * @param capabilities The capabilities.
+     * @return The key.
+     */
+    static String keyOf(Capabilities capabilities) {
+        return new TreeMap<String, Object>(capabilities.asMap()).toString();
+    }
+
+    /**
+     * Quits the driver, ignoring errors from sessions that are already gone.
+     *
+     * @param driver The driver to quit.
+     */
+    static void quitQuietly(AppiumDriver driver) {
+        try {
+            driver.quit();
+        } catch (Exception e) {
+            utils.log().error("error quitting session: " + e.toString());
+        }
+        List<AutoCloseable> attached = resources.remove(driver);
+        if (attached != null) {
+            for (AutoCloseable resource : attached) {
+                try {
+                    resource.close();
+                } catch (Exception e) {
+                    utils.log().error("error releasing " + resource + ": " + e.toString());
+                }
+            }
+        }
+    }
+}
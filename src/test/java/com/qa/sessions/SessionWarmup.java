@@ -0,0 +1,163 @@
+package com.qa.sessions;
+
+import com.qa.data.Device;
+import com.qa.utils.TestUtils;
+import io.appium.java_client.AppiumDriver;
+import org.apache.logging.log4j.ThreadContext;
+import org.openqa.selenium.Capabilities;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class creates the sessions of all devices of a suite up front and concurrently, and leaves
+ * them warm in the {@link SessionPool} for the test threads, so suite start takes about as long as
+ * the slowest device instead of the sum of all of them.
+ * <p>
+ * At most {@code parallelism} sessions are created at a time, since each one installs and launches
+ * the app and a server or host only takes so many at once. A session that takes longer than the
+ * timeout is given up on; if it still comes up later it is quit. A device whose session could not
+ * be warmed is not fatal here: its test thread tries again when it needs the session.
+ */
+public class SessionWarmup {
+    static TestUtils utils = new TestUtils();
+
+    /**
+     * Creates the session of one device.
+     */
+    public interface Starter {
+
+        /**
+         * Builds the capabilities the device's test thread will ask the {@link SessionPool} for.
+         *
+         * @param device The device.
+         * @return The capabilities.
+         * @throws Exception If they cannot be built.
+         */
+        Capabilities capabilities(Device device) throws Exception;
+
+        /**
+         * Creates a session with those capabilities.
+         *
+         * @param device       The device.
+         * @param capabilities The capabilities.
+         * @return The driver.
+         * @throws Exception If the session cannot be created.
+         */
+        AppiumDriver create(Device device, Capabilities capabilities) throws Exception;
+    }
+
+    /**
+     * The warm-up of one device.
+     */
+    static class Warmup {
+        final Device device;
+        volatile long startedAt;
+        volatile long millis = -1;
+        boolean abandoned;
+        Future<?> future;
+        String outcome;
+
+        Warmup(Device device) {
+            this.device = device;
+        }
+    }
+
+    /**
+     * Creates the sessions of the devices and returns when each one is warm, failed or timed out.
+     *
+     * @param devices        The devices.
+     * @param parallelism    The most sessions created at a time.
+     * @param timeoutSeconds How long one session may take to create.
+     * @param starter        Creates the sessions.
+     * @return A one-line report of the startup time of each device.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public static String run(Collection<Device> devices, int parallelism, long timeoutSeconds, Starter starter)
+            throws InterruptedException {
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+            Thread t = new Thread(r, "session-warmup-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        long start = System.currentTimeMillis();
+        List<Warmup> warmups = new ArrayList<Warmup>();
+        for (Device device : devices) {
+            Warmup warmup = new Warmup(device);
+            warmup.future = executor.submit(() -> {
+                // log to the device's file, as its test thread will
+                ThreadContext.put("ROUTINGKEY", "logs" + File.separator + device.platformName() + "_" + device.deviceName());
+                try {
+                    warmup.startedAt = System.currentTimeMillis();
+                    Capabilities capabilities = starter.capabilities(device);
+                    AppiumDriver driver = starter.create(device, capabilities);
+                    synchronized (warmup) {
+                        if (warmup.abandoned) {
+                            SessionPool.quitQuietly(driver);
+                            return null;
+                        }
+                        warmup.millis = System.currentTimeMillis() - warmup.startedAt;
+                    }
+                    SessionPool.offer(capabilities, driver);
+                    return null;
+                } catch (Exception e) {
+                    utils.log().error("could not warm the session of " + device.deviceName(), e);
+                    throw e;
+                } finally {
+                    ThreadContext.remove("ROUTINGKEY");
+                }
+            });
+            warmups.add(warmup);
+        }
+        executor.shutdown();
+
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+        for (Warmup warmup : warmups) {
+            while (warmup.outcome == null) {
+                // a queued warm-up has not started its clock yet
+                long wait = warmup.startedAt == 0 ? 1000 : warmup.startedAt + timeoutMillis - System.currentTimeMillis();
+                try {
+                    warmup.future.get(Math.max(1, wait), TimeUnit.MILLISECONDS);
+                    warmup.outcome = warmup.millis + "ms";
+                } catch (TimeoutException e) {
+                    if (warmup.startedAt != 0 && System.currentTimeMillis() >= warmup.startedAt + timeoutMillis) {
+                        synchronized (warmup) {
+                            warmup.abandoned = true;
+                        }
+                        warmup.future.cancel(true);
+                        warmup.outcome = "timed out after " + timeoutSeconds + "s";
+                    }
+                } catch (ExecutionException e) {
+                    warmup.outcome = "failed (" + e.getCause() + ")";
+                }
+            }
+            if (warmup.millis < 0) {
+                utils.log().error("could not warm the session of " + warmup.device.deviceName() + ": " + warmup.outcome);
+            }
+        }
+
+        StringBuilder sb = new StringBuilder("session warm-up:");
+        long sum = 0;
+        int warm = 0;
+        for (Warmup warmup : warmups) {
+            if (warmup.millis >= 0) {
+                sum += warmup.millis;
+                warm++;
+            }
+            sb.append(" ").append(warmup.device.deviceName()).append("=").append(warmup.outcome);
+        }
+        sb.append(" | ").append(warm).append(" of ").append(warmups.size()).append(" session(s) warm in ")
+                .append(System.currentTimeMillis() - start).append("ms (").append(sum).append("ms one after another)");
+        return sb.toString();
+    }
+}
@@ -1,54 +1,38 @@
 package com.qa.tests;
 
 import com.qa.BaseTest;
+import com.qa.data.LoginUser;
 import com.qa.pages.LoginPage;
 import com.qa.pages.ProductsPage;
+import com.qa.reset.AppReset;
+import com.qa.reset.ResetStrategy;
 import com.qa.utils.TestUtils;
-import org.json.JSONObject;
-import org.json.JSONTokener;
 import org.testng.Assert;
 import org.testng.annotations.*;
 
-import java.io.InputStream;
 import java.lang.reflect.Method;
 
 /**
  * This class contains test methods for Login functionality.
+ * <p>
+ * Page objects are local to each test method: with pooled devices the methods of one instance
+ * run in parallel, each on its own device.
  */
+@AppReset(ResetStrategy.LOGOUT)
 public class LoginTests extends BaseTest {
-    LoginPage loginPage;
-    ProductsPage productsPage;
-    JSONObject loginUsers;
     TestUtils utils = new TestUtils();
 
     /**
      * Runs before the class starts.
      * <p>
-     * Reads login user data from a JSON file and stores it in a JSONObject.
-     *
-     * @throws Exception If there is an error reading the JSON file.
+     * Login user data is read through {@link LoginUser}, which parses data/loginUsers.json
+     * once per JVM, so there is nothing to load here.
      */
     @BeforeClass
-    public void beforeClass() throws Exception {
-        InputStream datais = null;
-        try {
-            String dataFileName = "data/loginUsers.json";
-            datais = getClass().getClassLoader().getResourceAsStream(dataFileName);
-            JSONTokener tokener = new JSONTokener(datais);
-            loginUsers = new JSONObject(tokener);
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw e;
-        } finally {
-            if (datais != null) {
-                datais.close();
-            }
-        }
+    public void beforeClass() {
 		  /*
-		  To ensure each test starts with a fresh app state, closeApp() and launchApp() have been moved to the
+		  To ensure each test starts with a fresh app state, the app reset has been moved to the
 		  @BeforeMethod section.
-		  // closeApp();
-		  // launchApp();
 		  */
     }
 
@@ -62,18 +46,16 @@ public class LoginTests extends BaseTest {
     /**
      * Runs before each test method.
      * <p>
-     * Closes and relaunches the app to ensure a fresh state for each test,
+     * Resets the app to the login screen to ensure a fresh state for each test,
      * and logs the starting of the test.
      *
      * @param m The Method object representing the current test method.
      */
     @BeforeMethod
     public void beforeMethod(Method m) {
-        closeApp();
-        launchApp();
+        resetApp(m);
 
         utils.log().info("\n" + "****** starting test:" + m.getName() + "******" + "\n");
-        loginPage = new LoginPage();
     }
 
     /**
@@ -90,8 +72,9 @@ public class LoginTests extends BaseTest {
      */
     @Test
     public void invalidUserName() {
-        loginPage.enterUserName(loginUsers.getJSONObject("invalidUser").getString("username"));
-        loginPage.enterPassword(loginUsers.getJSONObject("invalidUser").getString("password"));
+        LoginPage loginPage = new LoginPage();
+        loginPage.enterUserName(LoginUser.get("invalidUser").username());
+        loginPage.enterPassword(LoginUser.get("invalidUser").password());
         loginPage.pressLoginBtn();
 
         String actualErrTxt = loginPage.getErrTxt();
@@ -106,8 +89,9 @@ public class LoginTests extends BaseTest {
      */
     @Test
     public void invalidPassword() {
-        loginPage.enterUserName(loginUsers.getJSONObject("invalidPassword").getString("username"));
-        loginPage.enterPassword(loginUsers.getJSONObject("invalidPassword").getString("password"));
+        LoginPage loginPage = new LoginPage();
+        loginPage.enterUserName(LoginUser.get("invalidPassword").username());
+        loginPage.enterPassword(LoginUser.get("invalidPassword").password());
         loginPage.pressLoginBtn();
 
         String actualErrTxt = loginPage.getErrTxt();
@@ -122,9 +106,10 @@ public class LoginTests extends BaseTest {
      */
     @Test
     public void successfulLogin() {
-        loginPage.enterUserName(loginUsers.getJSONObject("validUser").getString("username"));
-        loginPage.enterPassword(loginUsers.getJSONObject("validUser").getString("password"));
-        productsPage = loginPage.pressLoginBtn();
+        LoginPage loginPage = new LoginPage();
+        loginPage.enterUserName(LoginUser.get("validUser").username());
+        loginPage.enterPassword(LoginUser.get("validUser").password());
+        ProductsPage productsPage = loginPage.pressLoginBtn();
 
         String actualProductTitle = productsPage.getTitle();
         String expectedProductTitle = getStrings().get("product_title");
@@ -0,0 +1,157 @@
+package com.qa.utils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class is the buffered, per-device backing store of {@link TestUtils#log(String)}.
+ * <p>
+ * Each log file has one long-lived buffered writer. Test threads only add lines to a
+ * lock-free queue; a single background thread drains every queue and writes them out.
+ * {@link #flush()} drains a sink synchronously and is called when a test ends; all
+ * sinks are flushed and closed when the JVM shuts down.
+ */
+public class LogSink {
+    static final long DRAIN_INTERVAL_MILLIS = 200;
+    static final Map<String, LogSink> sinks = new ConcurrentHashMap<String, LogSink>();
+    static volatile Thread drainer;
+
+    final Path file;
+    final ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<String>();
+    BufferedWriter writer;
+
+    LogSink(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Gets the sink writing to the given file, creating it on first use.
+     *
+     * @param path The log file path.
+     * @return The sink.
+     */
+    public static LogSink forFile(String path) {
+        LogSink sink = sinks.get(path);
+        if (sink == null) {
+            sink = sinks.computeIfAbsent(path, p -> new LogSink(Paths.get(p)));
+            startDrainer();
+        }
+        return sink;
+    }
+
+    /**
+     * Queues a line for writing. Never blocks and never touches the disk.
+     *
+     * @param line The line to write, without a line terminator.
+     */
+    public void append(String line) {
+        queue.offer(line);
+    }
+
+    /**
+     * Writes every queued line and flushes the file.
+     */
+    public synchronized void flush() {
+        try {
+            drain();
+            if (writer != null) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Flushes every sink.
+     */
+    public static void flushAll() {
+        for (LogSink sink : sinks.values()) {
+            sink.flush();
+        }
+    }
+
+    /**
+     * Flushes and closes every sink. Sinks reopen their file in append mode if they are
+     * written to again.
+     */
+    public static void closeAll() {
+        for (LogSink sink : sinks.values()) {
+            sink.close();
+        }
+    }
+
+    /**
+     * Flushes and closes the file.
+     */
+    synchronized void close() {
+        flush();
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            writer = null;
+        }
+    }
+
+    /**
+     * Moves queued lines into the buffered writer, opening the file on first use.
+     *
+     * @throws IOException If the file cannot be opened or written.
+     */
+    void drain() throws IOException {
+        String line = queue.poll();
+        if (line == null) {
+            return;
+        }
+        if (writer == null) {
+            File dir = file.toFile().getParentFile();
+            if (dir != null && !dir.exists()) {
+                dir.mkdirs();
+            }
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        do {
+            writer.write(line);
+            writer.newLine();
+        } while ((line = queue.poll()) != null);
+    }
+
+    /**
+     * Starts the background drainer thread and the shutdown hook, once.
+     */
+    static void startDrainer() {
+        if (drainer != null) {
+            return;
+        }
+        synchronized (LogSink.class) {
+            if (drainer != null) {
+                return;
+            }
+            Thread t = new Thread(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(DRAIN_INTERVAL_MILLIS));
+                    flushAll();
+                }
+            }, "log-sink-drainer");
+            t.setDaemon(true);
+            t.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(LogSink::closeAll, "log-sink-shutdown"));
+            drainer = t;
+        }
+    }
+}
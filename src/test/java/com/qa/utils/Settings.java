@@ -0,0 +1,47 @@
+package com.qa.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Properties;
+
+/**
+ * This class reads framework settings for code that runs outside a test instance, such as
+ * listeners and suite-wide managers: a system property of the setting's name wins over
+ * config.properties, which is read once per JVM.
+ */
+public class Settings {
+    static final String PROPERTIES = "config.properties";
+    static Properties properties;
+
+    /**
+     * Gets config.properties, read on first use.
+     *
+     * @return The properties.
+     */
+    static synchronized Properties properties() {
+        if (properties == null) {
+            Properties props = new Properties();
+            try (InputStream in = Settings.class.getClassLoader().getResourceAsStream(PROPERTIES)) {
+                if (in != null) {
+                    props.load(in);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("could not read " + PROPERTIES, e);
+            }
+            properties = props;
+        }
+        return properties;
+    }
+
+    /**
+     * Gets a setting: the system property of that name, else config.properties.
+     *
+     * @param name         The setting, e.g. "maxEmulators".
+     * @param defaultValue The value if neither has it.
+     * @return The value.
+     */
+    public static String get(String name, String defaultValue) {
+        return System.getProperty(name, properties().getProperty(name, defaultValue));
+    }
+}
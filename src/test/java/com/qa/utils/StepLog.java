@@ -0,0 +1,94 @@
+package com.qa.utils;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class keeps the latest steps of the current thread's test, such as the clicks, typing and
+ * reads of {@link com.qa.BaseTest}, in a fixed-size ring, so they only reach the log and the report
+ * when the test fails or is skipped.
+ * <p>
+ * The ring is allocated once per thread with {@code stepLogSize} slots (64 by default) and a step
+ * only stores the time and references to its message and value, so recording one allocates nothing.
+ * Once the ring is full the oldest steps are overwritten. The lines are built only by {@link #drain()}.
+ */
+public class StepLog {
+    static final int DEFAULT_SIZE = 64;
+    static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+    static final ThreadLocal<StepLog> steps = ThreadLocal.withInitial(() -> new StepLog(size()));
+
+    final long[] times;
+    final String[] messages;
+    final String[] values;
+    long count;
+
+    StepLog(int size) {
+        times = new long[size];
+        messages = new String[size];
+        values = new String[size];
+    }
+
+    /**
+     * Gets the ring size from {@code stepLogSize}.
+     *
+     * @return The number of steps kept per thread.
+     */
+    static int size() {
+        try {
+            return Math.max(1, Integer.parseInt(Settings.get("stepLogSize", String.valueOf(DEFAULT_SIZE)).trim()));
+        } catch (NumberFormatException e) {
+            return DEFAULT_SIZE;
+        }
+    }
+
+    /**
+     * Records a step of the current thread's test.
+     *
+     * @param message The step, e.g. "title is - ".
+     * @param value   A value appended to the message when it is written, or null.
+     */
+    public static void record(String message, String value) {
+        StepLog log = steps.get();
+        int i = (int) (log.count % log.times.length);
+        log.times[i] = System.currentTimeMillis();
+        log.messages[i] = message;
+        log.values[i] = value;
+        log.count++;
+    }
+
+    /**
+     * Forgets the current thread's steps, e.g. when its test passed.
+     */
+    public static void clear() {
+        StepLog log = steps.get();
+        Arrays.fill(log.messages, null);
+        Arrays.fill(log.values, null);
+        log.count = 0;
+    }
+
+    /**
+     * Takes the current thread's steps as lines, oldest first, and forgets them.
+     *
+     * @return The lines, starting with a note of how many older steps were overwritten, if any.
+     */
+    public static List<String> drain() {
+        StepLog log = steps.get();
+        int size = log.times.length;
+        List<String> lines = new ArrayList<String>();
+        long first = Math.max(0, log.count - size);
+        if (first > 0) {
+            lines.add("(" + first + " earlier steps not kept)");
+        }
+        for (long n = first; n < log.count; n++) {
+            int i = (int) (n % size);
+            lines.add(TIME.format(Instant.ofEpochMilli(log.times[i])) + " " + log.messages[i]
+                    + (log.values[i] == null ? "" : log.values[i]));
+        }
+        clear();
+        return lines;
+    }
+}
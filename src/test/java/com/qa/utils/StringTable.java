@@ -0,0 +1,89 @@
+package com.qa.utils;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class holds the static text from {@code strings/strings.xml}, shared by all device threads.
+ * <p>
+ * Each file is parsed once per JVM with a streaming (StAX) parser and exposed as an immutable map.
+ * Locale files named {@code strings/strings-<locale>.xml} are loaded on first use and fall back to
+ * the default table for keys they do not define.
+ */
+public class StringTable {
+    static final String DEFAULT_FILE = "strings/strings.xml";
+    static final XMLInputFactory factory = XMLInputFactory.newFactory();
+    static final Map<String, Map<String, String>> tables = new ConcurrentHashMap<String, Map<String, String>>();
+
+    /**
+     * Gets the default string table.
+     *
+     * @return The immutable map of string names to values.
+     */
+    public static Map<String, String> get() {
+        return get(null);
+    }
+
+    /**
+     * Gets the string table for the given locale, loading it on first use.
+     *
+     * @param locale The locale, e.g. "de"; null or empty for the default table.
+     * @return The immutable map of string names to values.
+     */
+    public static Map<String, String> get(String locale) {
+        if (locale == null || locale.isEmpty()) {
+            return tables.computeIfAbsent(DEFAULT_FILE, file -> load(file, Collections.emptyMap()));
+        }
+        Map<String, String> defaults = get();
+        return tables.computeIfAbsent("strings/strings-" + locale + ".xml", file -> load(file, defaults));
+    }
+
+    /**
+     * Loads a strings file from the classpath, layered over the given defaults.
+     *
+     * @param file     The classpath resource name.
+     * @param defaults The entries used for keys the file does not define.
+     * @return The immutable table.
+     */
+    static Map<String, String> load(String file, Map<String, String> defaults) {
+        HashMap<String, String> table = new HashMap<String, String>(defaults);
+        try (InputStream is = StringTable.class.getClassLoader().getResourceAsStream(file)) {
+            if (is == null) {
+                throw new IllegalArgumentException("strings file not found: " + file);
+            }
+            parse(is, table);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("could not parse " + file, e);
+        }
+        return Collections.unmodifiableMap(table);
+    }
+
+    /**
+     * Streams through a strings file and puts every {@code <string name="...">} entry into the map.
+     *
+     * @param is    The XML input.
+     * @param table The map to fill.
+     * @throws Exception If the XML cannot be parsed.
+     */
+    static void parse(InputStream is, Map<String, String> table) throws Exception {
+        XMLStreamReader reader = factory.createXMLStreamReader(is);
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("string")) {
+                    String name = reader.getAttributeValue(null, "name");
+                    table.put(name, reader.getElementText());
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -21,6 +21,15 @@ import java.util.HashMap;
  */
 public class TestUtils {
     public static final long WAIT = 10;
+    static final ThreadLocal<LogSink> sink = new ThreadLocal<LogSink>();
+    static final ThreadLocal<String> device = new ThreadLocal<String>();
+    static final StackWalker CALLER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+    static final ClassValue<Logger> LOGGERS = new ClassValue<Logger>() {
+        @Override
+        protected Logger computeValue(Class<?> type) {
+            return LogManager.getLogger(type);
+        }
+    };
 
     /**
      * Parses an XML file containing string resources and returns a HashMap of key-value pairs.
@@ -70,46 +79,59 @@ public class TestUtils {
         return dateFormat.format(date);
     }
 
+    /**
+     * Sets the device the current thread logs for, resolving its {@link LogSink} once. Called by
+     * {@link BaseTest} when a session is started, after the platform, device and run time are set.
+     *
+     * @param platform   The platform name.
+     * @param deviceName The device name.
+     * @param dateTime   The run's timestamp.
+     */
+    public static void useDevice(String platform, String deviceName, String dateTime) {
+        sink.set(LogSink.forFile("logs" + File.separator + platform + "_" + deviceName
+                + File.separator + dateTime + File.separator + "log.txt"));
+        device.set(platform + ":" + deviceName);
+    }
+
     /**
      * Logs a message to the console and a log file.
+     * <p>
+     * The line is queued on the device's {@link LogSink}, which writes it in the background.
+     * Before the thread has a device, the line only goes to the console.
      *
      * @param txt The message to be logged.
      */
     public void log(String txt) {
-        BaseTest base = new BaseTest();
-        String msg = Thread.currentThread().getId() + ":" + base.getPlatform() + ":" + base.getDeviceName() + ":"
-                + Thread.currentThread().getStackTrace()[2].getClassName() + ":" + txt;
+        String msg = Thread.currentThread().getId() + ":" + device.get() + ":"
+                + CALLER.getCallerClass().getName() + ":" + txt;
 
         System.out.println(msg);
 
-        String strFile = "logs" + File.separator + base.getPlatform() + "_" + base.getDeviceName()
-                + File.separator + base.getDateTime();
-
-        File logFile = new File(strFile);
-
-        if (!logFile.exists()) {
-            logFile.mkdirs();
+        LogSink deviceSink = sink.get();
+        if (deviceSink != null) {
+            deviceSink.append(msg);
         }
+    }
 
-        FileWriter fileWriter = null;
-        try {
-            fileWriter = new FileWriter(logFile + File.separator + "log.txt", true);
-        } catch (IOException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-        }
-        PrintWriter printWriter = new PrintWriter(fileWriter);
-        printWriter.println(msg);
-        printWriter.close();
+    /**
+     * Returns the log sink of the current thread's device and run, which backs {@link #log(String)}.
+     *
+     * @return The LogSink instance, or null before the thread has a device.
+     */
+    public LogSink logSink() {
+        return sink.get();
     }
 
     /**
      * Returns a Logger instance for the calling class.
+     * <p>
+     * The caller is found with a {@link StackWalker} that stops at the calling frame instead
+     * of capturing the whole stack, and the logger is cached per class.
      *
      * @return The Logger instance.
      */
     public Logger log() {
-        return LogManager.getLogger(Thread.currentThread().getStackTrace()[2].getClassName());
+        return LOGGERS.get(CALLER.getCallerClass());
     }
 
 }
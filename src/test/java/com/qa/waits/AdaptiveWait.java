@@ -0,0 +1,184 @@
+package com.qa.waits;
+
+import com.qa.utils.TestUtils;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebElement;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Waits for elements to become visible, learning from earlier waits for the same locator.
+ * <p>
+ * Callers key the history by platform and device model as well as the locator, so a slow device does
+ * not inherit the timeouts of a fast one. A wait is measured from its start to the end of the check
+ * that saw the element, so even an element that is already there counts its round trip.
+ * <p>
+ * Polling starts fast and backs off, so an element that is already there costs one check and a slow
+ * one does not cost a check every few milliseconds. The first poll interval follows the locator's
+ * median wait. Once a locator has {@link #MIN_SAMPLES} successful waits, its timeout becomes its p99
+ * wait times {@link #TIMEOUT_FACTOR}, kept between {@link #MIN_TIMEOUT_MS} and {@link TestUtils#WAIT}
+ * seconds. A locator whose last {@link #ABSENT_AFTER} waits all timed out is treated as known-absent
+ * and only waited for {@link #ABSENT_TIMEOUT_MS}, except that every {@link #ABSENT_RETRY_AFTER}
+ * such fast failures it gets the full timeout again, so a locator that comes back is relearned.
+ */
+public class AdaptiveWait {
+    static final long MIN_POLL_MS = 25;
+    static final long MAX_POLL_MS = 1000;
+    static final double BACKOFF = 1.5;
+    static final int MIN_SAMPLES = 10;
+    static final double TIMEOUT_FACTOR = 3;
+    static final long MIN_TIMEOUT_MS = 5000;
+    static final int ABSENT_AFTER = 2;
+    static final long ABSENT_TIMEOUT_MS = 1000;
+    static final int ABSENT_RETRY_AFTER = 5;
+    static final int HISTORY = 200;
+
+    static final Map<String, History> histories = new ConcurrentHashMap<String, History>();
+
+    /**
+     * The recent wait times of one locator.
+     */
+    static class History {
+        final long[] samples = new long[HISTORY];
+        int count;
+        int next;
+        int consecutiveTimeouts;
+        long timeouts;
+
+        /**
+         * Records a successful wait.
+         *
+         * @param millis How long the wait took, including the check that saw the element.
+         */
+        synchronized void success(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % HISTORY;
+            count = Math.min(count + 1, HISTORY);
+            consecutiveTimeouts = 0;
+        }
+
+        /**
+         * Records a wait that timed out.
+         */
+        synchronized void timeout() {
+            consecutiveTimeouts++;
+            timeouts++;
+        }
+
+        /**
+         * Gets a percentile of the recorded wait times.
+         *
+         * @param p The percentile, between 0 and 100.
+         * @return The wait time in milliseconds, or -1 without samples.
+         */
+        synchronized long percentile(double p) {
+            if (count == 0) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(p / 100 * count) - 1;
+            return sorted[Math.max(0, Math.min(count - 1, rank))];
+        }
+
+        /**
+         * Gets the timeout to use for the next wait.
+         *
+         * @return The timeout in milliseconds.
+         */
+        synchronized long timeoutMillis() {
+            long max = TestUtils.WAIT * 1000L;
+            // after ABSENT_AFTER timeouts, ABSENT_RETRY_AFTER fast failures, then one full wait
+            if (consecutiveTimeouts >= ABSENT_AFTER
+                    && (consecutiveTimeouts - ABSENT_AFTER) % (ABSENT_RETRY_AFTER + 1) != ABSENT_RETRY_AFTER) {
+                return ABSENT_TIMEOUT_MS;
+            }
+            if (count < MIN_SAMPLES) {
+                return max;
+            }
+            return Math.max(MIN_TIMEOUT_MS, Math.min(max, (long) (percentile(99) * TIMEOUT_FACTOR)));
+        }
+
+        /**
+         * Gets the first poll interval for the next wait.
+         *
+         * @return The interval in milliseconds.
+         */
+        synchronized long firstPollMillis() {
+            long median = percentile(50);
+            return median < 0 ? MIN_POLL_MS : Math.max(MIN_POLL_MS, Math.min(MAX_POLL_MS, median / 4));
+        }
+    }
+
+    /**
+     * Waits until an element is displayed.
+     *
+     * @param e   The element.
+     * @param key The key the history is kept under, such as the platform, device model, page and
+     *            field name, or null to wait the full {@link TestUtils#WAIT} without learning.
+     * @throws TimeoutException If the element is not displayed in time.
+     */
+    public static void untilVisible(WebElement e, String key) {
+        History history = key == null ? null : histories.computeIfAbsent(key, k -> new History());
+        long timeout = history == null ? TestUtils.WAIT * 1000L : history.timeoutMillis();
+        long poll = history == null ? MIN_POLL_MS : history.firstPollMillis();
+        long start = System.nanoTime();
+        while (true) {
+            try {
+                if (e.isDisplayed()) {
+                    if (history != null) {
+                        history.success((System.nanoTime() - start) / 1_000_000);
+                    }
+                    return;
+                }
+            } catch (NoSuchElementException | StaleElementReferenceException ignored) {
+                // not there yet
+            }
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            if (elapsed >= timeout) {
+                if (history != null) {
+                    history.timeout();
+                }
+                throw new TimeoutException("waited " + elapsed + " ms for " + (key == null ? e : key)
+                        + " to be visible (timeout " + timeout + " ms)");
+            }
+            try {
+                Thread.sleep(Math.min(poll, timeout - elapsed));
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new TimeoutException("interrupted while waiting for " + (key == null ? e : key), ie);
+            }
+            poll = Math.min(MAX_POLL_MS, (long) (poll * BACKOFF));
+        }
+    }
+
+    /**
+     * Writes the wait statistics of every locator as CSV.
+     *
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void export(Path file) throws IOException {
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write("locator,samples,timeouts,p50_ms,p90_ms,p99_ms,max_ms,next_timeout_ms\n");
+            for (Map.Entry<String, History> entry : new TreeMap<String, History>(histories).entrySet()) {
+                History h = entry.getValue();
+                synchronized (h) {
+                    w.write(entry.getKey() + "," + h.count + "," + h.timeouts + "," + h.percentile(50) + ","
+                            + h.percentile(90) + "," + h.percentile(99) + "," + h.percentile(100) + ","
+                            + h.timeoutMillis() + "\n");
+                }
+            }
+        }
+    }
+}